@@ -0,0 +1,226 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Acesso às classes do pipeline a partir dos benchmarks.
+ *
+ * O código do pipeline fica no pacote padrão, que não pode ser importado de um
+ * pacote nomeado, e o JMH exige que os benchmarks estejam em um pacote. Por isso
+ * as classes são resolvidas por nome uma única vez e chamadas por MethodHandles
+ * guardados em campos estáticos finais, que o JIT trata como constantes. Os
+ * parâmetros dos detectores são lidos das constantes de SuspicionPipeline.
+ */
+final class App {
+    private static final Class<?> PIPELINE = type("SuspicionPipeline");
+
+    private static final MethodHandle NEW_LOADER = constructor("CsvLoader");
+    private static final MethodHandle LOAD = method("CsvLoader", "load", Path.class);
+    private static final MethodHandle RESULT_STORE = getter("CsvLoader$Result", "store");
+    private static final MethodHandle SNAPSHOT_READ = method("TransactionSnapshot", "read", Path.class);
+    private static final MethodHandle SNAPSHOT_WRITE = method("TransactionSnapshot", "write", type("TransactionStore"), Path.class);
+    private static final MethodHandle NEW_GRAPH = constructor("TransactionGraph", type("TransactionStore"));
+
+    private static final MethodHandle NEW_FLOW = constructor("FlowChecker");
+    private static final MethodHandle FLOW = method("FlowChecker", "check", type("TransactionGraph"));
+    private static final MethodHandle NEW_SMURFING = constructor("SmurfingDetector", long.class, double.class, int.class);
+    private static final MethodHandle SMURFING = method("SmurfingDetector", "detect", type("TransactionGraph"));
+    private static final MethodHandle NEW_LAYERING = constructor("LayeringDetector", int.class, double.class, long.class, long.class);
+    private static final MethodHandle LAYERING = method("LayeringDetector", "detect", type("EdgeIndex"));
+    private static final MethodHandle NEW_COMMUNITY = constructor("CommunityDetector", int.class);
+    private static final MethodHandle COMMUNITY = method("CommunityDetector", "detect", type("EdgeIndex"));
+    private static final MethodHandle NEW_CYCLE = constructor("CycleDetector", int.class, long.class, double.class, long.class);
+    private static final MethodHandle CYCLE = method("CycleDetector", "detect", type("EdgeIndex"));
+    private static final MethodHandle NEW_RANKER = constructor("RiskRanker");
+    private static final MethodHandle RANK = method("RiskRanker", "rank", List.class);
+
+    private static final MethodHandle NEW_TASK = constructor("DetectorExecutor$Task", String.class, Callable.class);
+    private static final MethodHandle NEW_EXECUTOR = constructor("DetectorExecutor",
+        boolean.class, int.class, type("DetectorExecutor$ThreadKind"));
+    private static final MethodHandle EXECUTE = method("DetectorExecutor", "run", List.class);
+    private static final MethodHandle OUTCOME_ALERTS = getter("DetectorExecutor$Outcome", "alerts");
+
+    private static final MethodHandle NEW_GENERATOR = constructor("DatasetGenerator");
+    private static final MethodHandle GENERATOR_ROWS = setter("DatasetGenerator", "rows");
+    private static final MethodHandle GENERATOR_SEED = setter("DatasetGenerator", "seed");
+    private static final MethodHandle GENERATE = method("DatasetGenerator", "write", Path.class);
+
+    static final long SMURF_WINDOW_MINUTES = (long) constant("SMURF_WINDOW_MINUTES");
+    static final double SMURF_UNIT_LIMIT = (double) constant("SMURF_UNIT_LIMIT");
+    static final int SMURF_MIN_TX = (int) constant("SMURF_MIN_TX");
+    static final int LAYERING_MAX_DEPTH = (int) constant("LAYERING_MAX_DEPTH");
+    static final double LAYERING_DELTA = (double) constant("LAYERING_DELTA");
+    static final long LAYERING_TIME_WINDOW_MINUTES = (long) constant("LAYERING_TIME_WINDOW_MINUTES");
+    static final long LAYERING_MAX_STATES = (long) constant("LAYERING_MAX_STATES");
+    static final int DENSE_MIN_DEGREE = (int) constant("DENSE_MIN_DEGREE");
+    static final int CYCLE_MAX_LENGTH = (int) constant("CYCLE_MAX_LENGTH");
+    static final long CYCLE_TIME_WINDOW_MINUTES = (long) constant("CYCLE_TIME_WINDOW_MINUTES");
+    static final double TOLERANCE = (double) constant("TOLERANCE");
+    static final long CYCLE_MAX_STATES = (long) constant("CYCLE_MAX_STATES");
+    static final boolean CONCURRENT_DETECTORS = (boolean) constant("CONCURRENT_DETECTORS");
+    static final int DETECTOR_POOL_SIZE = (int) constant("DETECTOR_POOL_SIZE");
+    static final Object DETECTOR_THREAD_KIND = constant("DETECTOR_THREAD_KIND");
+
+    private App() {
+    }
+
+    /** Lê o CSV com o CsvLoader e devolve o TransactionStore. */
+    static Object loadCsv(Path csv) throws Throwable {
+        return RESULT_STORE.invoke(LOAD.invoke(NEW_LOADER.invoke(), csv));
+    }
+
+    static Object readSnapshot(Path csv) throws Throwable {
+        return SNAPSHOT_READ.invoke(csv);
+    }
+
+    static void writeSnapshot(Object store, Path csv) throws Throwable {
+        SNAPSHOT_WRITE.invoke(store, csv);
+    }
+
+    static Object graph(Object store) throws Throwable {
+        return NEW_GRAPH.invoke(store);
+    }
+
+    static List<?> flow(Object graph) throws Throwable {
+        return (List<?>) FLOW.invoke(NEW_FLOW.invoke(), graph);
+    }
+
+    static List<?> smurfing(Object graph) throws Throwable {
+        return (List<?>) SMURFING.invoke(NEW_SMURFING.invoke(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX), graph);
+    }
+
+    static List<?> layering(Object graph) throws Throwable {
+        return (List<?>) LAYERING.invoke(NEW_LAYERING.invoke(LAYERING_MAX_DEPTH, LAYERING_DELTA,
+            LAYERING_TIME_WINDOW_MINUTES, LAYERING_MAX_STATES), graph);
+    }
+
+    static List<?> community(Object graph) throws Throwable {
+        return (List<?>) COMMUNITY.invoke(NEW_COMMUNITY.invoke(DENSE_MIN_DEGREE), graph);
+    }
+
+    static List<?> cycles(Object graph) throws Throwable {
+        return (List<?>) CYCLE.invoke(NEW_CYCLE.invoke(CYCLE_MAX_LENGTH, CYCLE_TIME_WINDOW_MINUTES, TOLERANCE, CYCLE_MAX_STATES), graph);
+    }
+
+    static List<?> rank(List<?> alerts) throws Throwable {
+        return (List<?>) RANK.invoke(NEW_RANKER.invoke(), alerts);
+    }
+
+    /** Os cinco detectores, sequencialmente, com os alertas na ordem de runAnalysis. */
+    static List<Object> allAlerts(Object graph) throws Throwable {
+        List<Object> alerts = new ArrayList<>();
+        alerts.addAll(flow(graph));
+        alerts.addAll(smurfing(graph));
+        alerts.addAll(layering(graph));
+        alerts.addAll(community(graph));
+        alerts.addAll(cycles(graph));
+        return alerts;
+    }
+
+    /**
+     * O pipeline de runAnalysis sem a gravação dos arquivos: carga do CSV,
+     * índice, os cinco detectores no DetectorExecutor e o ranking.
+     */
+    static List<?> pipeline(Path csv) throws Throwable {
+        Object graph = graph(loadCsv(csv));
+        List<Object> tasks = new ArrayList<>();
+        tasks.add(NEW_TASK.invoke("FlowChecker", (Callable<List<?>>) () -> call(() -> flow(graph))));
+        tasks.add(NEW_TASK.invoke("SmurfingDetector", (Callable<List<?>>) () -> call(() -> smurfing(graph))));
+        tasks.add(NEW_TASK.invoke("LayeringDetector", (Callable<List<?>>) () -> call(() -> layering(graph))));
+        tasks.add(NEW_TASK.invoke("CommunityDetector", (Callable<List<?>>) () -> call(() -> community(graph))));
+        tasks.add(NEW_TASK.invoke("CycleDetector", (Callable<List<?>>) () -> call(() -> cycles(graph))));
+        Object executor = NEW_EXECUTOR.invoke(CONCURRENT_DETECTORS, DETECTOR_POOL_SIZE, DETECTOR_THREAD_KIND);
+        Object outcome = EXECUTE.invoke(executor, tasks);
+        return rank((List<?>) OUTCOME_ALERTS.invoke(outcome));
+    }
+
+    static void generate(Path csv, long rows, long seed) throws Throwable {
+        Object generator = NEW_GENERATOR.invoke();
+        GENERATOR_ROWS.invoke(generator, rows);
+        GENERATOR_SEED.invoke(generator, seed);
+        GENERATE.invoke(generator, csv);
+    }
+
+    private interface ThrowingSupplier<T> {
+        T get() throws Throwable;
+    }
+
+    private static <T> T call(ThrowingSupplier<T> body) throws Exception {
+        try {
+            return body.get();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Classe do pipeline não encontrada: " + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, Class<?>... params) {
+        try {
+            Constructor<?> c = type(owner).getDeclaredConstructor(params);
+            c.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(c);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Construtor não encontrado em " + owner, e);
+        }
+    }
+
+    private static MethodHandle method(String owner, String name, Class<?>... params) {
+        try {
+            Method m = type(owner).getDeclaredMethod(name, params);
+            m.setAccessible(true);
+            MethodHandle h = MethodHandles.lookup().unreflect(m);
+            // assinatura genérica para que invoke aceite Object nos argumentos
+            return h.asType(h.type().generic());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Método " + name + " não encontrado em " + owner, e);
+        }
+    }
+
+    private static MethodHandle getter(String owner, String name) {
+        try {
+            Field f = type(owner).getDeclaredField(name);
+            f.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(f).asType(MethodType.methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Campo " + name + " não encontrado em " + owner, e);
+        }
+    }
+
+    private static MethodHandle setter(String owner, String name) {
+        try {
+            Field f = type(owner).getDeclaredField(name);
+            f.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(f);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Campo " + name + " não encontrado em " + owner, e);
+        }
+    }
+
+    private static Object constant(String name) {
+        try {
+            Field f = PIPELINE.getDeclaredField(name);
+            f.setAccessible(true);
+            return f.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Constante " + name + " não encontrada", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Dataset sintético compartilhado pelos benchmarks.
+ *
+ * O CSV é gerado pelo DatasetGenerator na primeira vez e reaproveitado depois,
+ * em {@code -Dbench.data=<dir>} (padrão target/bench-data). Para 10M+ linhas:
+ * {@code -p rows=10000000 -jvmArgs -Xmx16g}.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    @Param({"42"})
+    public long seed;
+
+    Path csv;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Throwable {
+        Path dir = Paths.get(System.getProperty("bench.data", "target/bench-data"));
+        Files.createDirectories(dir);
+        csv = dir.resolve("synthetic_" + rows + "_" + seed + ".csv");
+        if (!Files.exists(csv)) App.generate(csv, rows, seed);
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cada detector isolado sobre o mesmo índice, com os parâmetros de
+ * SuspicionPipeline, mais a construção do próprio índice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DetectorBenchmark {
+    private Object store;
+    private Object graph;
+
+    @Setup(Level.Trial)
+    public void index(Dataset data) throws Throwable {
+        store = App.loadCsv(data.csv);
+        graph = App.graph(store);
+    }
+
+    @Benchmark
+    public Object transactionGraph() throws Throwable {
+        return App.graph(store);
+    }
+
+    @Benchmark
+    public Object flowChecker() throws Throwable {
+        return App.flow(graph);
+    }
+
+    @Benchmark
+    public Object smurfingDetector() throws Throwable {
+        return App.smurfing(graph);
+    }
+
+    @Benchmark
+    public Object layeringDetector() throws Throwable {
+        return App.layering(graph);
+    }
+
+    @Benchmark
+    public Object communityDetector() throws Throwable {
+        return App.community(graph);
+    }
+
+    @Benchmark
+    public Object cycleDetector() throws Throwable {
+        return App.cycles(graph);
+    }
+}
@@ -0,0 +1,43 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Carga fria do dataset, como em loadTransactions sem o cache em memória:
+ * interpretando o CSV ou lendo o snapshot binário.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LoadBenchmark {
+
+    @Setup(Level.Trial)
+    public void writeSnapshot(Dataset data) throws Throwable {
+        App.writeSnapshot(App.loadCsv(data.csv), data.csv);
+    }
+
+    @Benchmark
+    public Object csv(Dataset data) throws Throwable {
+        return App.loadCsv(data.csv);
+    }
+
+    @Benchmark
+    public Object snapshot(Dataset data) throws Throwable {
+        return App.readSnapshot(data.csv);
+    }
+}
@@ -0,0 +1,532 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Modo em lote, sem menu: analisa cada CSV de um diretório ou glob e grava os
+ * mesmos arquivos de resultado e de tempos da análise interativa, mais um
+ * resumo consolidado.
+ *
+ * Vários arquivos são analisados ao mesmo tempo, cada um com os detectores em
+ * sequência, sob um orçamento global de heap. A memória de um arquivo é
+ * estimada pelo tamanho (linha mínima de MIN_LINE_BYTES, HEAP_BYTES_PER_ROW por
+ * transação carregada) e reservada antes da carga; um arquivo cuja estimativa
+ * passa do orçamento inteiro vai para a {@link PartitionedAnalysis} e reserva o
+ * orçamento todo. Os maiores arquivos saem primeiro, para que não fiquem para o
+ * fim sozinhos.
+ */
+final class BatchRunner {
+    /** Colunas do TransactionStore, índice do grafo e alertas, por transação. */
+    private static final long HEAP_BYTES_PER_ROW = 160;
+    /** Linha de CSV mais curta plausível, para estimar o número de linhas pelo tamanho. */
+    private static final int MIN_LINE_BYTES = 48;
+    /** Saídas do próprio pipeline, ignoradas quando o diretório de entrada é o de saída. */
+    private static final String[] OUTPUT_PREFIXES = {"suspicion_results_for_", "communities_for_", "metrics_for_",
+        "smurfing_sweep_for_", "evaluation_for_", "evidence_for_", "batch_summary_", "batch_metrics_"};
+
+    enum Detector {
+        FLOW("flow", "1", "FlowChecker"),
+        SMURFING("smurfing", "2", "SmurfingDetector", "SMURF_WINDOW_MINUTES", "SMURF_UNIT_LIMIT", "SMURF_MIN_TX"),
+        LAYERING("layering", "3", "LayeringDetector", "LAYERING_MAX_DEPTH", "LAYERING_DELTA",
+            "LAYERING_TIME_WINDOW_MINUTES", "LAYERING_MAX_STATES"),
+        COMMUNITY("community", "4", "CommunityDetector", "DENSE_MIN_DEGREE"),
+        CYCLES("cycles", "8", "CycleDetector", "CYCLE_MAX_LENGTH", "CYCLE_TIME_WINDOW_MINUTES", "CYCLE_MAX_STATES", "TOLERANCE");
+
+        final String option;
+        /** Opção equivalente no menu, usada no nome dos arquivos. */
+        final String menuChoice;
+        final String taskName;
+        /** Parâmetros que o detector lê. */
+        final String[] parameters;
+
+        Detector(String option, String menuChoice, String taskName, String... parameters) {
+            this.option = option;
+            this.menuChoice = menuChoice;
+            this.taskName = taskName;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Parâmetros de detecção por nome, com os valores padrão do pipeline e as
+     * sobrescritas de {@code --set NOME=VALOR}.
+     */
+    static final class Parameters {
+        private final Map<String, Double> values = new LinkedHashMap<>();
+
+        Parameters define(String name, double value) {
+            values.put(name, value);
+            return this;
+        }
+
+        Parameters copy() {
+            Parameters res = new Parameters();
+            res.values.putAll(values);
+            return res;
+        }
+
+        /** Aplica {@code NOME=VALOR}. */
+        void set(String assignment) {
+            int eq = assignment.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Esperado NOME=VALOR: " + assignment);
+            String name = assignment.substring(0, eq);
+            set(name, parseValue(name, assignment.substring(eq + 1)));
+        }
+
+        void set(String name, double value) {
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("Parâmetro desconhecido: " + name + " (disponíveis: " + values.keySet() + ")");
+            }
+            values.put(name, value);
+        }
+
+        static double parseValue(String name, String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido para " + name + ": " + value);
+            }
+        }
+
+        double get(String name) {
+            Double value = values.get(name);
+            if (value == null) throw new IllegalArgumentException("Parâmetro não definido: " + name);
+            return value;
+        }
+
+        long getLong(String name) {
+            return (long) get(name);
+        }
+
+        int getInt(String name) {
+            return (int) get(name);
+        }
+
+        /** O valor como foi escrito: inteiros sem ".0". */
+        String format(String name) {
+            double value = get(name);
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+        }
+
+        @Override
+        public String toString() {
+            return values.keySet().stream().map(name -> name + "=" + format(name)).collect(Collectors.joining(" "));
+        }
+    }
+
+    /**
+     * Linha do resumo de um arquivo.
+     */
+    static final class FileReport {
+        final Path file;
+        final boolean outOfCore;
+        final long rows;
+        final long rejected;
+        final int accounts;
+        final int alerts;
+        final int rankedAccounts;
+        final long loadNanos;
+        final long detectNanos;
+        final long totalNanos;
+        /** Origens em que a busca de cadeias parou no limite de estados. */
+        final int truncatedOrigins;
+        /** Null quando a análise terminou. */
+        final String error;
+
+        FileReport(Path file, boolean outOfCore, long rows, long rejected, int accounts, int alerts, int rankedAccounts,
+                   long loadNanos, long detectNanos, long totalNanos, int truncatedOrigins, String error) {
+            this.file = file;
+            this.outOfCore = outOfCore;
+            this.rows = rows;
+            this.rejected = rejected;
+            this.accounts = accounts;
+            this.alerts = alerts;
+            this.rankedAccounts = rankedAccounts;
+            this.loadNanos = loadNanos;
+            this.detectNanos = detectNanos;
+            this.totalNanos = totalNanos;
+            this.truncatedOrigins = truncatedOrigins;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Reserva de heap compartilhada pelos arquivos em análise. Um pedido maior
+     * que o orçamento espera até o orçamento estar todo livre.
+     */
+    private static final class MemoryBudget {
+        private final long capacity;
+        private long used;
+
+        MemoryBudget(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized long acquire(long bytes) throws InterruptedException {
+            long granted = Math.min(bytes, capacity);
+            while (used > 0 && used + granted > capacity) wait();
+            used += granted;
+            return granted;
+        }
+
+        synchronized void release(long bytes) {
+            used -= bytes;
+            notifyAll();
+        }
+    }
+
+    private final Parameters parameters;
+    private final Set<Detector> detectors;
+    private final int jobs;
+    private final long budgetBytes;
+    private final Path outputDir;
+    private final Path spillRoot;
+    private final String analysisType;
+
+    BatchRunner(Parameters parameters, Set<Detector> detectors, int jobs, long budgetBytes, Path outputDir, Path spillRoot) {
+        this.parameters = parameters;
+        this.detectors = detectors;
+        this.jobs = Math.max(1, jobs);
+        this.budgetBytes = Math.max(1 << 20, budgetBytes);
+        this.outputDir = outputDir;
+        this.spillRoot = spillRoot;
+        this.analysisType = analysisType(detectors);
+    }
+
+    static List<String> usage() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Uso: java SuspicionPipeline --batch <diretório|arquivo.csv|glob> [opções]");
+        lines.add("  --detectors  lista separada por vírgulas de flow, smurfing, layering, community, cycles (padrão all)");
+        lines.add("  --set        sobrescreve um parâmetro de detecção, por exemplo --set SMURF_MIN_TX=8 (repetível)");
+        lines.add("  --jobs       arquivos analisados ao mesmo tempo (padrão: número de processadores)");
+        lines.add("  --memory-mb  orçamento de heap compartilhado pelos arquivos (padrão: metade do heap máximo)");
+        lines.add("  --out        diretório dos resultados (padrão: diretório atual)");
+        lines.add("O glob vale só para o nome do arquivo, por exemplo 'dados/2024-*.csv'.");
+        return lines;
+    }
+
+    static Set<Detector> parseDetectors(String list) {
+        if (list.equals("all")) return EnumSet.allOf(Detector.class);
+        Set<Detector> res = EnumSet.noneOf(Detector.class);
+        for (String name : list.split(",")) {
+            Detector match = null;
+            for (Detector d : Detector.values()) {
+                if (d.option.equals(name.trim())) match = d;
+            }
+            if (match == null) throw new IllegalArgumentException("Detector desconhecido: " + name);
+            res.add(match);
+        }
+        return res;
+    }
+
+    /**
+     * CSVs de um diretório, um arquivo único ou os arquivos cujo nome casa com
+     * o glob, em ordem de nome.
+     */
+    static List<Path> resolve(String spec) throws IOException {
+        Path path = Paths.get(spec);
+        if (Files.isRegularFile(path)) return Collections.singletonList(path);
+        Path dir;
+        PathMatcher matcher;
+        if (Files.isDirectory(path)) {
+            dir = path;
+            matcher = FileSystems.getDefault().getPathMatcher("glob:*.csv");
+        } else {
+            dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + path.getFileName());
+        }
+        if (!Files.isDirectory(dir)) return Collections.emptyList();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile)
+                .filter(p -> matcher.matches(p.getFileName()) && !isOutput(p))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isOutput(Path file) {
+        String name = file.getFileName().toString();
+        for (String prefix : OUTPUT_PREFIXES) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Analisa os arquivos e grava o resumo; devolve um relatório por arquivo,
+     * na ordem de entrada.
+     */
+    List<FileReport> run(List<Path> files) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        PipelineMetrics.reset();
+        MemoryBudget budget = new MemoryBudget(budgetBytes);
+        List<Path> bySize = new ArrayList<>(files);
+        Map<Path, Long> sizes = new LinkedHashMap<>();
+        for (Path f : files) sizes.put(f, Files.size(f));
+        bySize.sort(Comparator.comparing((Path f) -> sizes.get(f)).reversed());
+
+        System.out.println(String.format(">>> %d arquivos, %d em paralelo, orçamento de %d MB | detectores: %s",
+            files.size(), jobs, budgetBytes / (1024 * 1024), analysisType));
+        System.out.println(">>> Parâmetros: " + parameters);
+
+        long wallStart = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        int loaderThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / jobs);
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        Map<Path, Future<FileReport>> futures = new LinkedHashMap<>();
+        try {
+            for (Path file : bySize) {
+                futures.put(file, pool.submit(() -> {
+                    long estimate = sizes.get(file) / MIN_LINE_BYTES * HEAP_BYTES_PER_ROW;
+                    long granted = budget.acquire(estimate);
+                    try {
+                        FileReport report = analyse(file, estimate > budgetBytes, loaderThreads);
+                        System.out.println(progressLine(done.incrementAndGet(), files.size(), report));
+                        return report;
+                    } finally {
+                        budget.release(granted);
+                    }
+                }));
+            }
+            List<FileReport> reports = new ArrayList<>();
+            for (Path file : files) {
+                try {
+                    reports.add(futures.get(file).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) throw (Error) cause;
+                    reports.add(failed(file, cause));
+                }
+            }
+            long wallNanos = System.nanoTime() - wallStart;
+            writeSummary(reports, wallNanos);
+            return reports;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private FileReport analyse(Path file, boolean outOfCore, int loaderThreads) {
+        long start = System.nanoTime();
+        try {
+            return outOfCore ? analysePartitioned(file, loaderThreads, start) : analyseInMemory(file, loaderThreads, start);
+        } catch (IOException | RuntimeException e) {
+            return failed(file, e);
+        }
+    }
+
+    private FileReport analyseInMemory(Path file, int loaderThreads, long start) throws IOException {
+        long loadStart = System.nanoTime();
+        CsvLoader.Result parse = new CsvLoader(loaderThreads).load(file);
+        long loadNanos = System.nanoTime() - loadStart;
+        SuspicionPipeline.countParse(parse);
+        TransactionStore store = parse.store;
+        Map<String, Long> times = new LinkedHashMap<>();
+        long detectStart = System.nanoTime();
+        TransactionGraph graph = new TransactionGraph(store);
+        times.put("TransactionGraph (índice)", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - detectStart));
+
+        List<CommunityDetector.Community> communities = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger truncated = new AtomicInteger();
+        List<DetectorExecutor.Task> tasks = new ArrayList<>();
+        for (Detector d : detectors) tasks.add(task(d, parameters, graph, communities, truncated));
+        // o paralelismo do lote é entre arquivos; dentro de um arquivo os detectores rodam em sequência
+        DetectorExecutor.Outcome outcome = new DetectorExecutor(false, 1, DetectorExecutor.ThreadKind.PLATFORM).run(tasks);
+        String loadLine = "Carga do dataset (CSV): " + TimeUnit.NANOSECONDS.toMillis(loadNanos) + " ms";
+        return finish(file, false, parse, store, store.accounts, outcome, communities, times, loadLine, loadNanos,
+            System.nanoTime() - detectStart, start, truncated.get());
+    }
+
+    private FileReport analysePartitioned(Path file, int loaderThreads, long start) throws IOException {
+        LayeringDetector layering = detectors.contains(Detector.LAYERING) ? layering(parameters) : null;
+        CycleDetector cycles = detectors.contains(Detector.CYCLES) ? cycles(parameters) : null;
+        PartitionedAnalysis.Result analysis = new PartitionedAnalysis(budgetBytes, spillRoot,
+            detectors.contains(Detector.FLOW) ? new FlowChecker() : null,
+            detectors.contains(Detector.SMURFING) ? smurfing(parameters) : null,
+            layering,
+            detectors.contains(Detector.COMMUNITY) ? community(parameters) : null,
+            cycles).run(file, new CsvLoader(loaderThreads));
+        SuspicionPipeline.countParse(analysis.parse);
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : analysis.stageNanos.entrySet()) {
+            times.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+        }
+        String loadLine = String.format("Carga do dataset (CSV, fora da memória): %d partições, %.1f MB em spill",
+            analysis.partitions, analysis.spilledBytes / (1024.0 * 1024.0));
+        // a leitura do CSV acontece dentro da passada de spill
+        int truncated = (layering == null ? 0 : layering.truncatedOrigins()) + (cycles == null ? 0 : cycles.truncatedOrigins());
+        return finish(file, true, analysis.parse, null, analysis.accounts, analysis.outcome, analysis.communities, times,
+            loadLine, analysis.parse.nanos, System.nanoTime() - start - analysis.parse.nanos, start, truncated);
+    }
+
+    private FileReport finish(Path file, boolean outOfCore, CsvLoader.Result parse, TransactionStore store,
+                              StringDictionary accounts, DetectorExecutor.Outcome outcome, List<CommunityDetector.Community> communities,
+                              Map<String, Long> times, String loadLine, long loadNanos, long detectNanos, long start,
+                              int truncatedOrigins) throws IOException {
+        long total = 0;
+        for (long ms : times.values()) total += ms;
+        for (Map.Entry<String, Long> entry : outcome.detectorNanos.entrySet()) {
+            long duration = TimeUnit.NANOSECONDS.toMillis(entry.getValue());
+            times.put(entry.getKey(), duration);
+            total += duration;
+        }
+        List<RiskRanker.Ranked> ranked = new RiskRanker().rank(outcome.alerts, parameters.getInt("RANKING_TOP_K"));
+
+        String base = file.getFileName().toString().replace(".csv", "");
+        SuspicionPipeline.saveResultsToCsv(ranked, accounts,
+            outputDir.resolve("suspicion_results_for_" + base + "_" + analysisType + ".csv").toString());
+        if (!communities.isEmpty()) {
+            SuspicionPipeline.saveCommunitiesToCsv(communities, accounts,
+                outputDir.resolve("communities_for_" + base + "_" + analysisType + ".csv").toString());
+        }
+        ResultExporter.writeEvidence(ranked, accounts, store,
+            outputDir.resolve("evidence_for_" + base + "_" + analysisType + ".ndjson").toString());
+        SuspicionPipeline.saveExecutionTimes(times, total, outcome, loadLine,
+            outputDir.resolve("execution_times_for_" + base + "_" + analysisType + ".txt").toString());
+        return new FileReport(file, outOfCore, parse.rows, parse.rejected, accounts.size(), outcome.alerts.size(),
+            ranked.size(), loadNanos, detectNanos, System.nanoTime() - start, truncatedOrigins, null);
+    }
+
+    /**
+     * Tarefa do detector sobre o grafo em memória; as comunidades encontradas
+     * vão para {@code communities} e as origens truncadas somam em {@code truncated}.
+     */
+    static DetectorExecutor.Task task(Detector detector, Parameters parameters, TransactionGraph graph,
+                                      List<CommunityDetector.Community> communities, AtomicInteger truncated) {
+        switch (detector) {
+            case FLOW: {
+                FlowChecker d = new FlowChecker();
+                return new DetectorExecutor.Task(detector.taskName, () -> d.check(graph));
+            }
+            case SMURFING: {
+                SmurfingDetector d = smurfing(parameters);
+                return new DetectorExecutor.Task(detector.taskName, () -> d.detect(graph));
+            }
+            case LAYERING: {
+                LayeringDetector d = layering(parameters);
+                return new DetectorExecutor.Task(detector.taskName, () -> {
+                    List<Suspicion> found = d.detect(graph);
+                    truncated.addAndGet(d.truncatedOrigins());
+                    return found;
+                });
+            }
+            case COMMUNITY: {
+                CommunityDetector d = community(parameters);
+                return new DetectorExecutor.Task(detector.taskName, () -> {
+                    List<CommunityDetector.Community> found = d.findCommunities(graph);
+                    communities.addAll(found);
+                    return d.toSuspicions(found);
+                });
+            }
+            default: {
+                CycleDetector d = cycles(parameters);
+                return new DetectorExecutor.Task(detector.taskName, () -> {
+                    List<Suspicion> found = d.detect(graph);
+                    truncated.addAndGet(d.truncatedOrigins());
+                    return found;
+                });
+            }
+        }
+    }
+
+    private static SmurfingDetector smurfing(Parameters parameters) {
+        return new SmurfingDetector(parameters.getLong("SMURF_WINDOW_MINUTES"), parameters.get("SMURF_UNIT_LIMIT"),
+            parameters.getInt("SMURF_MIN_TX"));
+    }
+
+    private static LayeringDetector layering(Parameters parameters) {
+        return new LayeringDetector(parameters.getInt("LAYERING_MAX_DEPTH"), parameters.get("LAYERING_DELTA"),
+            parameters.getLong("LAYERING_TIME_WINDOW_MINUTES"), parameters.getLong("LAYERING_MAX_STATES"));
+    }
+
+    private static CommunityDetector community(Parameters parameters) {
+        return new CommunityDetector(parameters.getInt("DENSE_MIN_DEGREE"));
+    }
+
+    private static CycleDetector cycles(Parameters parameters) {
+        return new CycleDetector(parameters.getInt("CYCLE_MAX_LENGTH"), parameters.getLong("CYCLE_TIME_WINDOW_MINUTES"),
+            parameters.get("TOLERANCE"), parameters.getLong("CYCLE_MAX_STATES"));
+    }
+
+    private static FileReport failed(Path file, Throwable cause) {
+        String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        return new FileReport(file, false, 0, 0, 0, 0, 0, 0, 0, 0, 0, message);
+    }
+
+    private static String progressLine(int done, int total, FileReport r) {
+        if (r.error != null) return String.format("[%d/%d] %s: ERRO: %s", done, total, r.file.getFileName(), r.error);
+        return String.format("[%d/%d] %s: %d linhas, %d alertas, %d contas rankeadas, %d ms%s%s", done, total,
+            r.file.getFileName(), r.rows, r.alerts, r.rankedAccounts, TimeUnit.NANOSECONDS.toMillis(r.totalNanos),
+            r.outOfCore ? " (fora da memória)" : "",
+            r.truncatedOrigins > 0 ? ", " + r.truncatedOrigins + " origem(ns) no limite de estados" : "");
+    }
+
+    private void writeSummary(List<FileReport> reports, long wallNanos) throws IOException {
+        long rows = 0;
+        int failures = 0;
+        for (FileReport r : reports) {
+            rows += r.rows;
+            if (r.error != null) failures++;
+        }
+        double seconds = wallNanos / 1e9;
+        List<String> totals = new ArrayList<>();
+        totals.add(String.format(Locale.ROOT, "Arquivos: %d (%d com erro) | Linhas: %d | Tempo de parede: %d ms",
+            reports.size(), failures, rows, TimeUnit.NANOSECONDS.toMillis(wallNanos)));
+        totals.add(String.format(Locale.ROOT, "Vazão: %.2f arquivos/s | %.0f linhas/s",
+            reports.size() / seconds, rows / seconds));
+        totals.add("Parâmetros: " + parameters);
+
+        String summaryCsv = outputDir.resolve("batch_summary_" + analysisType + ".csv").toString();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(summaryCsv))) {
+            pw.println("File,Mode,Rows,Rejected,Accounts,Alerts,RankedAccounts,LoadMs,DetectMs,TotalMs,TruncatedOrigins,Error");
+            for (FileReport r : reports) {
+                String error = r.error == null ? "" : "\"" + r.error.replace("\"", "\"\"") + "\"";
+                pw.println(r.file + "," + (r.outOfCore ? "out_of_core" : "in_memory") + "," + r.rows + "," + r.rejected + ","
+                    + r.accounts + "," + r.alerts + "," + r.rankedAccounts + ","
+                    + TimeUnit.NANOSECONDS.toMillis(r.loadNanos) + "," + TimeUnit.NANOSECONDS.toMillis(r.detectNanos) + ","
+                    + TimeUnit.NANOSECONDS.toMillis(r.totalNanos) + "," + r.truncatedOrigins + "," + error);
+            }
+        }
+        String summaryTxt = outputDir.resolve("batch_summary_" + analysisType + ".txt").toString();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(summaryTxt))) {
+            totals.forEach(pw::println);
+        }
+        String metricsCsv = outputDir.resolve("batch_metrics_" + analysisType + ".csv").toString();
+        PipelineMetrics.write(metricsCsv);
+
+        System.out.println("\n--- RESUMO DO LOTE ---");
+        totals.forEach(System.out::println);
+        System.out.println("Resumo salvo em '" + summaryCsv + "' e '" + summaryTxt + "'");
+        System.out.println("Métricas salvas em '" + metricsCsv + "'");
+    }
+
+    /** Mesmo sufixo da análise interativa: all_algorithms, algo_N ou algo_N_M... */
+    private static String analysisType(Set<Detector> detectors) {
+        if (detectors.size() == Detector.values().length) return "all_algorithms";
+        StringBuilder sb = new StringBuilder("algo");
+        for (Detector d : detectors) sb.append('_').append(d.menuChoice);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Detecta comunidades densas via k-core (grau mínimo DENSE_MIN_DEGREE).
+ *
+ * A decomposição em núcleos calcula o core number de todas as contas de uma
+ * vez; o k-core de qualquer k sai dela sem recomputar. Cada componente conexo
+ * do k-core é reportado como uma comunidade própria.
+*/
+class CommunityDetector {
+    private final int minDegree;
+
+    public CommunityDetector(int d) {
+        minDegree = d;
+    }
+
+    public List<Suspicion> detect(EdgeIndex graph) {
+        return toSuspicions(findCommunities(graph));
+    }
+
+    public List<Community> findCommunities(EdgeIndex graph) {
+        return new CoreDecomposition(graph).communities(minDegree);
+    }
+
+    public List<Suspicion> toSuspicions(List<Community> communities) {
+        List<Suspicion> res = new ArrayList<>();
+        for (Community c : communities) {
+            for (int acc : c.accounts) res.add(new Suspicion(acc, "Comunidade densa", 2, c.evidence));
+        }
+        return res;
+    }
+
+    /**
+     * Componente conexo de um k-core.
+     */
+    static final class Community {
+        final int id;
+        final int k;
+        final int[] accounts;
+        /** Transações com as duas pontas na comunidade, na ordem do arquivo. */
+        final int[] evidence;
+        /** Arestas não direcionadas distintas entre contas diferentes. */
+        final int edges;
+
+        Community(int id, int k, int[] accounts, int[] evidence, int edges) {
+            this.id = id;
+            this.k = k;
+            this.accounts = accounts;
+            this.evidence = evidence;
+            this.edges = edges;
+        }
+
+        int size() {
+            return accounts.length;
+        }
+
+        double density() {
+            long n = accounts.length;
+            return n < 2 ? 0.0 : 2.0 * edges / (n * (n - 1));
+        }
+    }
+
+    /**
+     * Decomposição em núcleos de Batagelj-Zaversnik, O(V + E), sobre os
+     * vizinhos distintos do {@link EdgeIndex}. As contas ficam em um
+     * array ordenado por grau com baldes; ao remover a de menor grau, cada
+     * vizinho de grau maior desce um balde com uma troca de posição.
+     */
+    static final class CoreDecomposition {
+        private final EdgeIndex graph;
+        final int[] core;
+        final int maxCore;
+
+        CoreDecomposition(EdgeIndex graph) {
+            this.graph = graph;
+            int n = graph.accountCount();
+            core = new int[n];
+            int maxDeg = 0;
+            for (int v = 0; v < n; v++) {
+                core[v] = graph.endNeighbour(v) - graph.firstNeighbour(v);
+                maxDeg = Math.max(maxDeg, core[v]);
+            }
+            int[] bin = new int[maxDeg + 1];
+            for (int v = 0; v < n; v++) bin[core[v]]++;
+            for (int d = 0, start = 0; d <= maxDeg; d++) {
+                int count = bin[d];
+                bin[d] = start;
+                start += count;
+            }
+            int[] pos = new int[n];
+            int[] vert = new int[n];
+            for (int v = 0; v < n; v++) {
+                pos[v] = bin[core[v]]++;
+                vert[pos[v]] = v;
+            }
+            for (int d = maxDeg; d > 0; d--) bin[d] = bin[d - 1];
+            bin[0] = 0;
+
+            int best = 0;
+            long moves = 0;
+            PipelineMetrics.Sampler sampler = new PipelineMetrics.Sampler();
+            for (int i = 0; i < n; i++) {
+                int v = vert[i];
+                best = Math.max(best, core[v]);
+                long movesBefore = moves;
+                for (int p = graph.firstNeighbour(v), end = graph.endNeighbour(v); p < end; p++) {
+                    int u = graph.neighbour(p);
+                    if (core[u] > core[v]) {
+                        int du = core[u], pu = pos[u];
+                        int pw = bin[du], w = vert[pw];
+                        if (u != w) {
+                            pos[u] = pw; vert[pu] = w;
+                            pos[w] = pu; vert[pw] = u;
+                        }
+                        bin[du]++;
+                        core[u]--;
+                        moves++;
+                    }
+                }
+                if (sampler.sample()) PipelineMetrics.sample(PipelineMetrics.Histogram.PEEL_MOVES_PER_ACCOUNT, v, moves - movesBefore);
+            }
+            maxCore = best;
+            // cada conta sai da fila uma vez, mais uma troca de balde por vizinho rebaixado
+            PipelineMetrics.add(PipelineMetrics.Counter.PEEL_OPERATIONS, n + moves);
+        }
+
+        boolean inCore(int account, int k) {
+            return core[account] >= k;
+        }
+
+        /**
+         * Separa o k-core em componentes conexos, na ordem da menor conta de
+         * cada componente.
+         */
+        List<Community> communities(int k) {
+            int n = graph.accountCount();
+            int[] component = new int[n];
+            Arrays.fill(component, -1);
+            int[] queue = new int[n];
+            List<Community> res = new ArrayList<>();
+            for (int seed = 0; seed < n; seed++) {
+                if (component[seed] >= 0 || core[seed] < k) continue;
+                int id = res.size();
+                int head = 0, tail = 0;
+                queue[tail++] = seed;
+                component[seed] = id;
+                int edgeEnds = 0, evidenceCount = 0;
+                while (head < tail) {
+                    int v = queue[head++];
+                    for (int p = graph.firstNeighbour(v), end = graph.endNeighbour(v); p < end; p++) {
+                        int u = graph.neighbour(p);
+                        if (core[u] < k || u == v) continue;
+                        edgeEnds++;
+                        if (component[u] < 0) {
+                            component[u] = id;
+                            queue[tail++] = u;
+                        }
+                    }
+                    for (int p = graph.firstOut(v), end = graph.endOut(v); p < end; p++) {
+                        if (core[graph.outTarget(p)] >= k) evidenceCount++;
+                    }
+                }
+                int[] accounts = Arrays.copyOf(queue, tail);
+                Arrays.sort(accounts);
+                int[] evidence = new int[evidenceCount];
+                int e = 0;
+                for (int v : accounts) {
+                    for (int p = graph.firstOut(v), end = graph.endOut(v); p < end; p++) {
+                        if (core[graph.outTarget(p)] >= k) evidence[e++] = graph.outRow(p);
+                    }
+                }
+                Arrays.sort(evidence);
+                res.add(new Community(id, k, accounts, evidence, edgeEnds / 2));
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,653 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Carregador paralelo de CSV.
+ *
+ * O arquivo é mapeado em memória e dividido em blocos alinhados a quebras de
+ * linha. Cada bloco é interpretado em paralelo, sem criar strings por linha:
+ * timestamp e valor têm parsers próprios e as contas são internadas direto dos
+ * bytes em um dicionário local do bloco. No final os blocos são unidos na ordem
+ * do arquivo, de modo que os IDs densos das contas são os mesmos de uma leitura
+ * sequencial. Formatos fora do caminho rápido caem no parser da JDK, mantendo
+ * as mesmas regras (e mensagens de erro) do carregamento linha a linha.
+ */
+final class CsvLoader {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
+    private static final byte[] MARKER = "LAUNDERING ATTEMPT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BEGIN = "BEGIN ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END ".getBytes(StandardCharsets.US_ASCII);
+    private static final int MIN_FIELDS = 11;
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_CHUNK_BYTES = 64 << 20;
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    private final int parallelism;
+
+    CsvLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    CsvLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Resultado de uma carga: o armazenamento e as estatísticas de ingestão.
+     */
+    static final class Result {
+        /** Null quando o arquivo foi consumido por {@link #stream}. */
+        final TransactionStore store;
+        final int rows;
+        final long bytes;
+        final long nanos;
+        /** Linhas vazias ou marcadores BEGIN/END LAUNDERING ATTEMPT. */
+        final long skipped;
+        /** Linhas com menos de 11 campos ou com timestamp/valor inválido. */
+        final long rejected;
+
+        Result(TransactionStore store, int rows, long bytes, long nanos, long skipped, long rejected) {
+            this.store = store;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.skipped = skipped;
+            this.rejected = rejected;
+        }
+
+        double rowsPerSecond() {
+            return nanos == 0 ? 0 : rows * 1e9 / nanos;
+        }
+
+        double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) * 1e9 / nanos;
+        }
+    }
+
+    Result load(Path path) throws IOException {
+        long startTime = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long[] bounds = chunkBounds(ch, size);
+            List<Chunk> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                if (bounds[i + 1] > bounds[i]) chunks.add(new Chunk(ch, bounds[i], bounds[i + 1]));
+            }
+
+            ExecutorService pool = newPool(chunks.size());
+            try {
+                runAll(pool, chunks);
+                TransactionStore store = merge(pool, chunks);
+                long skipped = 0, rejected = 0;
+                for (Chunk c : chunks) {
+                    skipped += c.skipped;
+                    rejected += c.rejected;
+                }
+                return new Result(store, store.size, size, System.nanoTime() - startTime, skipped, rejected);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Recebe as transações de {@link #stream} na ordem do arquivo, com as contas
+     * já traduzidas para os IDs globais.
+     */
+    interface RowSink {
+        void accept(int row, int origin, int destination, double amount, int timestamp) throws IOException;
+    }
+
+    /**
+     * Interpreta o arquivo sem montar o TransactionStore. Os blocos são
+     * processados em lotes de {@code parallelism}; as contas são internadas em
+     * {@code accounts} na mesma ordem de {@link #load}, de modo que IDs e índices
+     * de linha coincidem com os da carga em memória. Só um lote fica em memória.
+     */
+    Result stream(Path path, StringDictionary accounts, RowSink sink) throws IOException {
+        long startTime = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long[] bounds = chunkBounds(ch, size);
+            ExecutorService pool = newPool(bounds.length - 1);
+            int row = 0;
+            long skipped = 0, rejected = 0;
+            try {
+                for (int first = 0; first + 1 < bounds.length; first += parallelism) {
+                    List<Chunk> batch = new ArrayList<>();
+                    for (int i = first; i < Math.min(first + parallelism, bounds.length - 1); i++) {
+                        if (bounds[i + 1] > bounds[i]) batch.add(new Chunk(ch, bounds[i], bounds[i + 1]));
+                    }
+                    runAll(pool, batch);
+                    for (Chunk c : batch) {
+                        for (String error : c.errors) System.err.println(error);
+                        int[] accountMap = c.accounts.remap(accounts);
+                        for (int i = 0; i < c.size; i++) {
+                            sink.accept(row, accountMap[c.origin[i]], accountMap[c.destination[i]], c.amount[i], c.timestamp[i]);
+                            row = Math.addExact(row, 1);
+                        }
+                        skipped += c.skipped;
+                        rejected += c.rejected;
+                        c.release();
+                    }
+                }
+                return new Result(null, row, size, System.nanoTime() - startTime, skipped, rejected);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private ExecutorService newPool(int tasks) {
+        return Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, tasks)), r -> {
+            Thread t = new Thread(r, "csv-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Calcula os limites dos blocos: o primeiro começa depois do cabeçalho e
+     * todos os demais começam no início de uma linha.
+     */
+    private long[] chunkBounds(FileChannel ch, long size) throws IOException {
+        long dataStart = size == 0 ? 0 : lineStartAtOrAfter(ch, 1, size);
+        long data = size - dataStart;
+        long target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, data / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long prev = dataStart;
+        for (long nominal = dataStart + target; nominal < size; nominal += target) {
+            long b = lineStartAtOrAfter(ch, nominal, size);
+            if (b > prev && b < size) {
+                bounds.add(b);
+                prev = b;
+            }
+        }
+        bounds.add(size);
+        long[] res = new long[bounds.size()];
+        for (int i = 0; i < res.length; i++) res[i] = bounds.get(i);
+        return res;
+    }
+
+    private static long lineStartAtOrAfter(FileChannel ch, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long p = pos - 1;
+        while (p < size) {
+            buf.clear();
+            int n = ch.read(buf, p);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return p + i + 1;
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    private static void runAll(ExecutorService pool, List<? extends Callable<Void>> tasks) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> t : tasks) futures.add(pool.submit(t));
+        for (Future<Void> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Carga interrompida", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Une os blocos na ordem do arquivo: traduz os dicionários locais para os
+     * globais (sequencialmente, para preservar a ordem de primeira ocorrência)
+     * e depois copia as colunas em paralelo.
+     */
+    private static TransactionStore merge(ExecutorService pool, List<Chunk> chunks) throws IOException {
+        StringDictionary accounts = new StringDictionary();
+        StringDictionary banks = new StringDictionary();
+        StringDictionary currencies = new StringDictionary();
+        StringDictionary paymentFormats = new StringDictionary();
+        int total = 0;
+        for (Chunk c : chunks) {
+            for (String error : c.errors) System.err.println(error);
+            c.offset = total;
+            total = Math.addExact(total, c.size);
+            c.accountMap = c.accounts.remap(accounts);
+            c.bankMap = c.banks.remap(banks);
+            c.currencyMap = c.currencies.remap(currencies);
+            c.formatMap = c.formats.remap(paymentFormats);
+        }
+        if (currencies.size() > Short.MAX_VALUE || paymentFormats.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Dicionário excedeu " + Short.MAX_VALUE + " valores distintos");
+        }
+
+        int[] origin = new int[total];
+        int[] destination = new int[total];
+        double[] amount = new double[total];
+        int[] timestamp = new int[total];
+        int[] fromBank = new int[total];
+        int[] toBank = new int[total];
+        short[] currency = new short[total];
+        short[] paymentFormat = new short[total];
+        byte[] laundering = new byte[total];
+        List<Callable<Void>> copies = new ArrayList<>();
+        for (Chunk c : chunks) {
+            copies.add(() -> {
+                for (int i = 0; i < c.size; i++) {
+                    int row = c.offset + i;
+                    origin[row] = c.accountMap[c.origin[i]];
+                    destination[row] = c.accountMap[c.destination[i]];
+                    fromBank[row] = c.bankMap[c.fromBank[i]];
+                    toBank[row] = c.bankMap[c.toBank[i]];
+                    currency[row] = (short) c.currencyMap[c.currency[i]];
+                    paymentFormat[row] = (short) c.formatMap[c.paymentFormat[i]];
+                }
+                System.arraycopy(c.amount, 0, amount, c.offset, c.size);
+                System.arraycopy(c.timestamp, 0, timestamp, c.offset, c.size);
+                System.arraycopy(c.laundering, 0, laundering, c.offset, c.size);
+                c.release();
+                return null;
+            });
+        }
+        runAll(pool, copies);
+        return new TransactionStore(accounts, banks, currencies, paymentFormats, total,
+            origin, destination, amount, timestamp, fromBank, toBank, currency, paymentFormat, laundering);
+    }
+
+    /**
+     * Um bloco do arquivo, interpretado de forma independente com colunas e
+     * dicionários locais.
+     */
+    private static final class Chunk implements Callable<Void> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        final ByteDictionary accounts = new ByteDictionary();
+        final ByteDictionary banks = new ByteDictionary();
+        final ByteDictionary currencies = new ByteDictionary();
+        final ByteDictionary formats = new ByteDictionary();
+        final List<String> errors = new ArrayList<>();
+        long skipped;
+        long rejected;
+
+        int size;
+        int[] origin;
+        int[] destination;
+        double[] amount;
+        int[] timestamp;
+        int[] fromBank;
+        int[] toBank;
+        int[] currency;
+        int[] paymentFormat;
+        byte[] laundering;
+
+        int offset;
+        int[] accountMap;
+        int[] bankMap;
+        int[] currencyMap;
+        int[] formatMap;
+
+        private MappedByteBuffer buf;
+        private final LineParser line = new LineParser();
+
+        Chunk(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            int cap = (int) Math.max(16, (end - start) / 96);
+            origin = new int[cap];
+            destination = new int[cap];
+            amount = new double[cap];
+            timestamp = new int[cap];
+            fromBank = new int[cap];
+            toBank = new int[cap];
+            currency = new int[cap];
+            paymentFormat = new int[cap];
+            laundering = new byte[cap];
+        }
+
+        @Override
+        public Void call() throws IOException {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            line.reset(buf);
+            int len = (int) (end - start);
+            int pos = 0;
+            while (pos < len) {
+                int eol = pos;
+                while (eol < len && buf.get(eol) != '\n') eol++;
+                int lineEnd = eol;
+                if (lineEnd > pos && buf.get(lineEnd - 1) == '\r') lineEnd--;
+                parseLine(pos, lineEnd);
+                pos = eol + 1;
+            }
+            line.reset(null);
+            buf = null;
+            return null;
+        }
+
+        private void parseLine(int from, int to) {
+            if (line.isSkipped(from, to)) {
+                skipped++;
+                return;
+            }
+            if (!line.split(from, to)) {
+                rejected++;
+                return;
+            }
+
+            int ts;
+            double value;
+            try {
+                ts = line.parseTimestamp(0);
+                value = line.parseAmount(5);
+            } catch (Exception e) {
+                rejected++;
+                errors.add("    Erro ao processar a linha: " + line.text(from, to) + " -> " + e.getMessage());
+                return;
+            }
+            ensureCapacity();
+            origin[size] = accounts.intern(buf, line.trimStart(2), line.trimEnd(2));
+            destination[size] = accounts.intern(buf, line.trimStart(4), line.trimEnd(4));
+            amount[size] = value;
+            timestamp[size] = ts;
+            fromBank[size] = banks.intern(buf, line.trimStart(1), line.trimEnd(1));
+            toBank[size] = banks.intern(buf, line.trimStart(3), line.trimEnd(3));
+            currency[size] = currencies.intern(buf, line.trimStart(6), line.trimEnd(6));
+            paymentFormat[size] = formats.intern(buf, line.trimStart(9), line.trimEnd(9));
+            int label = line.trimStart(10);
+            laundering[size] = (byte) (line.trimEnd(10) - label == 1 && buf.get(label) == '1' ? 1 : 0);
+            size++;
+        }
+
+        private void ensureCapacity() {
+            if (size < origin.length) return;
+            int cap = origin.length * 2;
+            origin = Arrays.copyOf(origin, cap);
+            destination = Arrays.copyOf(destination, cap);
+            amount = Arrays.copyOf(amount, cap);
+            timestamp = Arrays.copyOf(timestamp, cap);
+            fromBank = Arrays.copyOf(fromBank, cap);
+            toBank = Arrays.copyOf(toBank, cap);
+            currency = Arrays.copyOf(currency, cap);
+            paymentFormat = Arrays.copyOf(paymentFormat, cap);
+            laundering = Arrays.copyOf(laundering, cap);
+        }
+
+        void release() {
+            origin = destination = timestamp = fromBank = toBank = currency = paymentFormat = null;
+            amount = null;
+            laundering = null;
+        }
+    }
+
+    /**
+     * Interpretação de uma linha do CSV direto dos bytes: marcadores, separação
+     * dos campos e os caminhos rápidos de timestamp e valor. A carga em lote e
+     * o {@link StreamingEngine} usam o mesmo parser, então aceitam e recusam as
+     * mesmas linhas. As posições de {@link #trimStart}/{@link #trimEnd} valem
+     * até a próxima chamada de {@link #split}.
+     */
+    static final class LineParser {
+        private ByteBuffer buf;
+        private final int[] fieldStart = new int[MIN_FIELDS];
+        private final int[] fieldEnd = new int[MIN_FIELDS];
+
+        void reset(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        int trimStart(int field) {
+            int s = fieldStart[field], e = fieldEnd[field];
+            while (s < e && (buf.get(s) & 0xFF) <= ' ') s++;
+            return s;
+        }
+
+        int trimEnd(int field) {
+            int s = fieldStart[field], e = fieldEnd[field];
+            while (e > s && (buf.get(e - 1) & 0xFF) <= ' ') e--;
+            return e;
+        }
+
+        /**
+         * Caminho rápido para o formato fixo yyyy/MM/dd HH:mm; qualquer outra
+         * forma é delegada ao DateTimeFormatter.
+         */
+        int parseTimestamp(int field) {
+            int s = trimStart(field), e = trimEnd(field);
+            if (e - s == 16 && buf.get(s + 4) == '/' && buf.get(s + 7) == '/'
+                    && buf.get(s + 10) == ' ' && buf.get(s + 13) == ':') {
+                int year = digits(s, 4), month = digits(s + 5, 2), day = digits(s + 8, 2);
+                int hour = digits(s + 11, 2), minute = digits(s + 14, 2);
+                if (year >= 1 && month >= 1 && month <= 12 && day >= 1 && day <= monthLength(year, month)
+                        && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59) {
+                    return (int) (epochDay(year, month, day) * 1440 + hour * 60 + minute);
+                }
+            }
+            return TransactionStore.toEpochMinute(LocalDateTime.parse(text(s, e), FORMATTER));
+        }
+
+        private int digits(int from, int count) {
+            int v = 0;
+            for (int i = from; i < from + count; i++) {
+                int d = buf.get(i) - '0';
+                if (d < 0 || d > 9) return -1;
+                v = v * 10 + d;
+            }
+            return v;
+        }
+
+        /**
+         * Caminho rápido para decimais simples. Com mantissa abaixo de 2^53 e até
+         * 22 casas decimais, a divisão por 10^n é exata no arredondamento e
+         * produz o mesmo double que Double.parseDouble.
+         */
+        double parseAmount(int field) {
+            int s = trimStart(field), e = trimEnd(field);
+            int i = s;
+            boolean negative = false;
+            if (i < e && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digitCount = 0, fractionDigits = 0;
+            boolean dot = false, fast = i < e;
+            for (; i < e && fast; i++) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digitCount++;
+                    if (dot) fractionDigits++;
+                    fast = digitCount <= 15;
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else {
+                    fast = false;
+                }
+            }
+            if (fast && digitCount > 0 && fractionDigits < POW10.length) {
+                double v = mantissa / POW10[fractionDigits];
+                return negative ? -v : v;
+            }
+            return Double.parseDouble(text(s, e));
+        }
+
+        /** Linha vazia ou marcador BEGIN/END LAUNDERING ATTEMPT. */
+        boolean isSkipped(int from, int to) {
+            return isBlank(from, to) || isMarker(from, to);
+        }
+
+        /**
+         * Separa os campos de [from, to); false se a linha tem menos de 11. A
+         * contagem é a de String.split(","): campos vazios no fim não contam.
+         */
+        boolean split(int from, int to) {
+            int field = 0, fieldFrom = from, lastNonEmpty = -1;
+            for (int i = from; i <= to; i++) {
+                if (i == to || buf.get(i) == ',') {
+                    if (field < MIN_FIELDS) {
+                        fieldStart[field] = fieldFrom;
+                        fieldEnd[field] = i;
+                    }
+                    if (i > fieldFrom) lastNonEmpty = field;
+                    field++;
+                    fieldFrom = i + 1;
+                }
+            }
+            return lastNonEmpty + 1 >= MIN_FIELDS;
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if ((buf.get(i) & 0xFF) > ' ') return false;
+            }
+            return true;
+        }
+
+        private boolean isMarker(int from, int to) {
+            for (int i = from; i + MARKER.length <= to; i++) {
+                if (regionMatches(i, MARKER)
+                        && ((i - BEGIN.length >= from && regionMatches(i - BEGIN.length, BEGIN))
+                        || (i - END.length >= from && regionMatches(i - END.length, END)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean regionMatches(int at, byte[] expected) {
+            for (int k = 0; k < expected.length; k++) {
+                if (buf.get(at + k) != expected[k]) return false;
+            }
+            return true;
+        }
+
+        String text(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            buf.get(from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /** Dias desde 1970-01-01 no calendário ISO, igual a LocalDate.toEpochDay. */
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Dicionário local de um bloco, com endereçamento aberto sobre os bytes
+     * originais. Só aloca na primeira ocorrência de cada valor.
+     */
+    static final class ByteDictionary {
+        private byte[] pool = new byte[4096];
+        private int poolSize;
+        private int[] offsets = new int[256];
+        private int[] lengths = new int[256];
+        private int count;
+        private int[] table = new int[512];
+
+        int intern(ByteBuffer src, int from, int to) {
+            int len = to - from;
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + src.get(i);
+            h ^= h >>> 16;
+            int mask = table.length - 1;
+            for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    table[slot] = add(src, from, len) + 1;
+                    if (count * 2 > table.length) rehash();
+                    return count - 1;
+                }
+                int id = entry - 1;
+                if (lengths[id] == len && equalsAt(id, src, from)) return id;
+            }
+        }
+
+        private boolean equalsAt(int id, ByteBuffer src, int from) {
+            int off = offsets[id];
+            for (int k = 0; k < lengths[id]; k++) {
+                if (pool[off + k] != src.get(from + k)) return false;
+            }
+            return true;
+        }
+
+        private int add(ByteBuffer src, int from, int len) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            if (poolSize + len > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+            src.get(from, pool, poolSize, len);
+            offsets[count] = poolSize;
+            lengths[count] = len;
+            poolSize += len;
+            return count++;
+        }
+
+        private void rehash() {
+            int[] next = new int[table.length * 2];
+            int mask = next.length - 1;
+            for (int id = 0; id < count; id++) {
+                int h = 0;
+                for (int k = 0; k < lengths[id]; k++) h = 31 * h + pool[offsets[id] + k];
+                h ^= h >>> 16;
+                int slot = h & mask;
+                while (next[slot] != 0) slot = (slot + 1) & mask;
+                next[slot] = id + 1;
+            }
+            table = next;
+        }
+
+        /** Traduz cada código local para o código do dicionário global. */
+        int[] remap(StringDictionary global) {
+            int[] map = new int[count];
+            for (int id = 0; id < count; id++) {
+                map[id] = global.intern(new String(pool, offsets[id], lengths[id], StandardCharsets.UTF_8));
+            }
+            return map;
+        }
+    }
+}
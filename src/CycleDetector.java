@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Detecta ciclos temporais (round-tripping): sequências de 2 a maxLength
+ * transações que saem de uma conta e voltam a ela, sem repetir contas, com
+ * cada salto até timeWindow minutos depois do anterior (nunca antes) e com
+ * valor dentro de +-tolerance (relativo) do salto anterior.
+ *
+ * Um ciclo só existe dentro de um componente fortemente conexo, então a busca
+ * não sai do componente da origem, e nenhum salto passa do último recebimento
+ * da origem. Como o tempo nunca volta, cada ciclo é enumerado uma única vez, a
+ * partir da sua transação mais antiga; só quando todos os saltos caem no mesmo
+ * minuto vale a rotação que começa na menor linha. As origens são agrupadas
+ * por componente e divididas entre os núcleos via fork/join; cada origem
+ * explora no máximo maxStates estados. Toda conta de um ciclo recebe um alerta
+ * com as transações dos ciclos de que participa.
+*/
+class CycleDetector extends PathSearchDetector {
+    private final int maxLength; private final long timeWindow; private final double tolerance;
+    public CycleDetector(int l, long t, double tol) { this(l, t, tol, DEFAULT_MAX_STATES); }
+    public CycleDetector(int l, long t, double tol, long s) { super(s); maxLength = Math.max(2, l); timeWindow = t; tolerance = tol; }
+
+    public List<Suspicion> detect(EdgeIndex graph) {
+        int n = graph.accountCount();
+        int[] component = stronglyConnected(graph);
+        int[] componentSize = new int[n];
+        for (int acc = 0; acc < n; acc++) componentSize[component[acc]]++;
+
+        // origens possíveis, agrupadas por componente (só componentes com mais de uma conta)
+        int[] lastIn = new int[n];
+        Arrays.fill(lastIn, Integer.MIN_VALUE);
+        int[] start = new int[n + 1];
+        for (int acc = 0; acc < n; acc++) {
+            for (int p = graph.firstOut(acc), end = graph.endOut(acc); p < end; p++) {
+                int dst = graph.outTarget(p);
+                lastIn[dst] = Math.max(lastIn[dst], graph.outTime(p));
+            }
+            if (componentSize[component[acc]] > 1) start[component[acc] + 1]++;
+        }
+        for (int c = 0; c < n; c++) start[c + 1] += start[c];
+        int[] seeds = new int[start[n]];
+        for (int acc = 0; acc < n; acc++) {
+            if (componentSize[component[acc]] > 1) seeds[start[component[acc]]++] = acc;
+        }
+        int[] seedEdges = new int[seeds.length + 1];
+        for (int i = 0; i < seeds.length; i++) {
+            seedEdges[i + 1] = seedEdges[i] + graph.endOut(seeds[i]) - graph.firstOut(seeds[i]);
+        }
+
+        List<int[]> cycles = Collections.synchronizedList(new ArrayList<>());
+        int[] truncated = new int[1];
+        ForkJoinPool.commonPool().invoke(new SeedTask(graph, component, lastIn, seeds, seedEdges, 0, seeds.length, cycles, truncated));
+        truncatedOrigins = truncated[0];
+        return toSuspicions(n, cycles);
+    }
+
+    /**
+     * Cada bloco de ciclos é uma sequência de registros [k, k contas, k linhas].
+     */
+    private static List<Suspicion> toSuspicions(int n, List<int[]> cycles) {
+        int[] count = new int[n];
+        for (int[] block : cycles) {
+            for (int i = 0; i < block.length; i += 1 + 2 * block[i]) {
+                int k = block[i];
+                for (int j = 1; j <= k; j++) count[block[i + j]] += k;
+            }
+        }
+        int[][] rows = new int[n][];
+        for (int acc = 0; acc < n; acc++) if (count[acc] > 0) rows[acc] = new int[count[acc]];
+        Arrays.fill(count, 0);
+        for (int[] block : cycles) {
+            for (int i = 0; i < block.length; i += 1 + 2 * block[i]) {
+                int k = block[i];
+                for (int j = 1; j <= k; j++) {
+                    int acc = block[i + j];
+                    System.arraycopy(block, i + 1 + k, rows[acc], count[acc], k);
+                    count[acc] += k;
+                }
+            }
+        }
+        List<Suspicion> res = new ArrayList<>();
+        for (int acc = 0; acc < n; acc++) {
+            if (rows[acc] == null) continue;
+            int[] ev = rows[acc];
+            Arrays.sort(ev);
+            int size = 0;
+            for (int i = 0; i < ev.length; i++) if (i == 0 || ev[i] != ev[i - 1]) ev[size++] = ev[i];
+            res.add(new Suspicion(acc, "Ciclo temporal detectado", 4, Arrays.copyOf(ev, size)));
+        }
+        return res;
+    }
+
+    /**
+     * Componentes fortemente conexos pelo algoritmo de Tarjan, com pilha de
+     * chamadas explícita para não estourar a pilha em caminhos longos.
+     * Devolve o componente de cada conta.
+     */
+    static int[] stronglyConnected(EdgeIndex graph) {
+        int n = graph.accountCount();
+        int[] index = new int[n], low = new int[n], component = new int[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int[] stack = new int[n], callAccount = new int[n], callEdge = new int[n];
+        int sp = 0, counter = 0, components = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            callAccount[0] = root;
+            callEdge[0] = graph.firstOut(root);
+            int depth = 1;
+            while (depth > 0) {
+                int v = callAccount[depth - 1];
+                int p = callEdge[depth - 1];
+                if (p < graph.endOut(v)) {
+                    callEdge[depth - 1] = p + 1;
+                    int w = graph.outTarget(p);
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        callAccount[depth] = w;
+                        callEdge[depth] = graph.firstOut(w);
+                        depth++;
+                    } else if (component[w] < 0) {
+                        // w ainda está na pilha: pertence ao componente em formação
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = callAccount[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        component[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Divide as origens em faixas com número parecido de arestas de saída; como
+     * as origens estão agrupadas por componente, cada faixa fica em poucos componentes.
+     */
+    private final class SeedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final EdgeIndex graph; private final int[] component, lastIn, seeds, seedEdges;
+        private final int lo, hi; private final List<int[]> cycles; private final int[] truncated;
+
+        SeedTask(EdgeIndex graph, int[] component, int[] lastIn, int[] seeds, int[] seedEdges,
+                 int lo, int hi, List<int[]> cycles, int[] truncated) {
+            this.graph = graph; this.component = component; this.lastIn = lastIn;
+            this.seeds = seeds; this.seedEdges = seedEdges; this.lo = lo; this.hi = hi;
+            this.cycles = cycles; this.truncated = truncated;
+        }
+
+        @Override
+        protected void compute() {
+            int mid = split(lo, hi, i -> seedEdges[i]);
+            if (mid >= 0) {
+                invokeAll(new SeedTask(graph, component, lastIn, seeds, seedEdges, lo, mid, cycles, truncated),
+                          new SeedTask(graph, component, lastIn, seeds, seedEdges, mid, hi, cycles, truncated));
+                return;
+            }
+            Search search = new Search(graph, component, lastIn);
+            PipelineMetrics.Sampler sampler = new PipelineMetrics.Sampler();
+            long expanded = 0;
+            int truncatedOrigins = 0;
+            for (int i = lo; i < hi; i++) {
+                search.explore(seeds[i]);
+                expanded += search.states;
+                if (search.exhausted) truncatedOrigins++;
+                if (sampler.sample()) PipelineMetrics.sample(PipelineMetrics.Histogram.CYCLE_STATES_PER_ORIGIN, seeds[i], search.states);
+            }
+            if (search.found > 0) cycles.add(Arrays.copyOf(search.cycles, search.found));
+            PipelineMetrics.add(PipelineMetrics.Counter.CYCLE_STATES_EXPANDED, expanded);
+            PipelineMetrics.add(PipelineMetrics.Counter.CYCLE_STATES_PRUNED, search.pruned);
+            PipelineMetrics.add(PipelineMetrics.Counter.CYCLES_FOUND, search.cycleCount);
+            PipelineMetrics.add(PipelineMetrics.Counter.CYCLE_TRUNCATED_ORIGINS, truncatedOrigins);
+            if (truncatedOrigins > 0) {
+                synchronized (truncated) {
+                    truncated[0] += truncatedOrigins;
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca em profundidade a partir de uma origem, com o caminho atual em
+     * arrays de tamanho maxLength. Cada aresta candidata examinada conta como
+     * um estado explorado.
+     */
+    private final class Search {
+        private final EdgeIndex graph; private final int[] component, lastIn;
+        private final int[] accounts = new int[maxLength];
+        /** Posições de saída das arestas do caminho atual. */
+        private final int[] edges = new int[maxLength];
+        private int origin, deadline;
+        /** Minuto e linha do primeiro salto, para escolher a rotação de um ciclo todo no mesmo minuto. */
+        private int firstTime, firstRow;
+        private long states;
+        boolean exhausted;
+        /** Ciclos encontrados por todas as origens desta busca, como registros [k, contas, linhas]. */
+        int[] cycles = new int[64];
+        int found;
+        long pruned, cycleCount;
+
+        Search(EdgeIndex graph, int[] component, int[] lastIn) {
+            this.graph = graph; this.component = component; this.lastIn = lastIn;
+        }
+
+        void explore(int start) {
+            origin = start; states = 0; exhausted = false;
+            // nenhum salto pode ser posterior ao último recebimento da origem
+            deadline = lastIn[start];
+            accounts[0] = start;
+            for (int p = graph.firstOut(start), end = graph.endOut(start); p < end && !exhausted; p++) {
+                if (graph.outTime(p) > deadline) break;
+                int dst = graph.outTarget(p);
+                if (dst == start || component[dst] != component[start]) continue;
+                edges[0] = p;
+                firstTime = graph.outTime(p);
+                firstRow = graph.outRow(p);
+                accounts[1] = dst;
+                extend(1);
+            }
+        }
+
+        private void extend(int len) {
+            int cur = accounts[len];
+            int prev = edges[len - 1];
+            int prevTime = graph.outTime(prev);
+            double prevAmt = graph.outAmount(prev);
+            long limit = Math.min(deadline, (long) prevTime + timeWindow);
+            int end = graph.endOut(cur);
+            for (int p = graph.firstOutAfter(cur, prevTime - 1L); p < end && graph.outTime(p) <= limit; p++) {
+                if (++states > maxStates) { exhausted = true; return; }
+                double amt = graph.outAmount(p);
+                if (Math.abs(amt - prevAmt) > tolerance * Math.abs(prevAmt)) { pruned++; continue; }
+                int dst = graph.outTarget(p);
+                if (dst == origin) {
+                    edges[len] = p;
+                    record(len + 1);
+                    continue;
+                }
+                if (len + 1 >= maxLength || component[dst] != component[origin] || onPath(accounts, len, dst)) { pruned++; continue; }
+                edges[len] = p;
+                accounts[len + 1] = dst;
+                extend(len + 1);
+                if (exhausted) return;
+            }
+        }
+
+        private void record(int k) {
+            // com todos os saltos no mesmo minuto, cada rotação fecha o ciclo; só a da menor linha conta
+            if (graph.outTime(edges[k - 1]) == firstTime) {
+                for (int i = 1; i < k; i++) {
+                    if (graph.outRow(edges[i]) < firstRow) { pruned++; return; }
+                }
+            }
+            if (found + 1 + 2 * k > cycles.length) cycles = Arrays.copyOf(cycles, Math.max(cycles.length * 2, found + 1 + 2 * k));
+            cycles[found++] = k;
+            System.arraycopy(accounts, 0, cycles, found, k);
+            found += k;
+            for (int i = 0; i < k; i++) cycles[found++] = graph.outRow(edges[i]);
+            cycleCount++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de datasets já carregados, mantido entre execuções do menu.
+ *
+ * A chave é o caminho absoluto do CSV junto com tamanho e data de modificação,
+ * de modo que um arquivo alterado é recarregado. As entradas são despejadas na
+ * ordem do uso menos recente quando o tamanho estimado passa do orçamento.
+ * Na falta de uma entrada, tenta-se o snapshot binário ao lado do CSV antes de
+ * interpretar o texto; depois de interpretar, o snapshot é (re)gravado.
+ */
+final class DatasetCache {
+    enum Source { CACHE, SNAPSHOT, CSV }
+
+    /**
+     * Dataset entregue pelo cache, com a origem e o tempo desta carga e da
+     * carga fria que o colocou em memória.
+     */
+    static final class Load {
+        final TransactionStore store;
+        final Source source;
+        final long nanos;
+        final Source coldSource;
+        final long coldNanos;
+        /** Estatísticas do parser; só presente quando o CSV foi interpretado agora. */
+        final CsvLoader.Result parse;
+
+        Load(TransactionStore store, Source source, long nanos, Source coldSource, long coldNanos, CsvLoader.Result parse) {
+            this.store = store;
+            this.source = source;
+            this.nanos = nanos;
+            this.coldSource = coldSource;
+            this.coldNanos = coldNanos;
+            this.parse = parse;
+        }
+    }
+
+    private static final class Entry {
+        final String path;
+        final TransactionStore store;
+        final Source coldSource;
+        final long coldNanos;
+        final long bytes;
+
+        Entry(String path, TransactionStore store, Source coldSource, long coldNanos) {
+            this.path = path;
+            this.store = store;
+            this.coldSource = coldSource;
+            this.coldNanos = coldNanos;
+            this.bytes = store.estimatedBytes();
+        }
+    }
+
+    private final long budgetBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    DatasetCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    synchronized Load load(Path csv, CsvLoader loader) throws IOException {
+        long start = System.nanoTime();
+        String key = key(csv);
+        Entry cached = entries.get(key);
+        if (cached != null) {
+            return new Load(cached.store, Source.CACHE, System.nanoTime() - start, cached.coldSource, cached.coldNanos, null);
+        }
+
+        Source source = Source.SNAPSHOT;
+        CsvLoader.Result parse = null;
+        TransactionStore store = null;
+        try {
+            store = TransactionSnapshot.read(csv);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot ignorado (" + e.getMessage() + "); interpretando o CSV.");
+        }
+        if (store == null) {
+            source = Source.CSV;
+            parse = loader.load(csv);
+            store = parse.store;
+        }
+        long nanos = System.nanoTime() - start;
+        if (source == Source.CSV && store.size > 0) {
+            try {
+                TransactionSnapshot.write(store, csv);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Não foi possível gravar o snapshot: " + e.getMessage());
+            }
+        }
+        put(key, new Entry(path(csv), store, source, nanos));
+        return new Load(store, source, nanos, source, nanos, parse);
+    }
+
+    /** Se o arquivo, na versão atual, já está em memória; não conta como uso. */
+    synchronized boolean contains(Path csv) {
+        try {
+            return entries.containsKey(key(csv));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        // uma versão anterior do mesmo arquivo não será mais usada
+        entries.entrySet().removeIf(e -> {
+            boolean stale = e.getValue().path.equals(entry.path) && !e.getKey().equals(key);
+            if (stale) usedBytes -= e.getValue().bytes;
+            return stale;
+        });
+        Entry previous = entries.put(key, entry);
+        if (previous != null) usedBytes -= previous.bytes;
+        usedBytes += entry.bytes;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == entry) continue;
+            usedBytes -= eldest.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private static String path(Path csv) {
+        return csv.toAbsolutePath().normalize().toString();
+    }
+
+    private static String key(Path csv) throws IOException {
+        return path(csv) + "|" + Files.size(csv) + "|" + Files.getLastModifiedTime(csv).toMillis();
+    }
+}
@@ -0,0 +1,318 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador determinístico de datasets sintéticos no formato de full_dataset.csv.
+ *
+ * O tráfego de fundo sai em ordem de tempo: cada conta paga sempre o mesmo
+ * conjunto de {@code fanOut} contrapartes, e os recebedores ficam restritos a
+ * uma fração das contas para que cada um tenha em média {@code fanIn} pagadores
+ * distintos. Uma fração das contas são hubs, que participam de uma parcela
+ * configurável das transações. Sobre o fundo são injetados padrões rotulados
+ * com Is Laundering = 1: rajadas de smurfing, cadeias de layering e anéis
+ * densos. A mesma semente gera sempre o mesmo arquivo.
+ */
+final class DatasetGenerator {
+    private static final String HEADER = "Timestamp,From Bank,From Account,To Bank,To Account,Amount,Currency,"
+        + "Amount Received,Currency Received,Payment Format,Is Laundering";
+    private static final String[] CURRENCIES = {"US Dollar", "Euro", "Yuan", "Rupee", "UK Pound", "Australian Dollar"};
+    private static final String[] FORMATS = {"ACH", "Cheque", "Credit Card", "Wire", "Cash", "Reinvestment"};
+    private static final LocalDateTime START = LocalDateTime.of(2022, 9, 1, 0, 0);
+
+    long rows = 10_000;
+    long seed = 42;
+    /** Contas no tráfego de fundo; 0 = uma para cada 10 linhas. */
+    int accounts;
+    int banks = 500;
+    int fanOut = 4;
+    int fanIn = 4;
+    /** Fração das contas que são hubs. */
+    double hubFraction = 0.001;
+    /** Probabilidade de uma transação de fundo ter um hub como destino. */
+    double hubShare = 0.05;
+    /** Padrões injetados; negativos = um de cada para cada 10 mil linhas. */
+    int smurfing = -1;
+    int layering = -1;
+    int rings = -1;
+    long spanMinutes = 30L * 24 * 60;
+
+    /**
+     * Estatísticas do arquivo gerado.
+     */
+    static final class Summary {
+        final long rows;
+        final long launderingRows;
+        final int accounts;
+
+        Summary(long rows, long launderingRows, int accounts) {
+            this.rows = rows;
+            this.launderingRows = launderingRows;
+            this.accounts = accounts;
+        }
+    }
+
+    /**
+     * Linha de um padrão injetado, aguardando sua vez na ordem de tempo.
+     */
+    private static final class Pending implements Comparable<Pending> {
+        final long minute; final long seq;
+        final int origin; final int destination; final double amount;
+
+        Pending(long minute, long seq, int origin, int destination, double amount) {
+            this.minute = minute; this.seq = seq;
+            this.origin = origin; this.destination = destination; this.amount = amount;
+        }
+
+        @Override
+        public int compareTo(Pending o) {
+            int c = Long.compare(minute, o.minute);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+        DatasetGenerator gen = new DatasetGenerator();
+        try {
+            gen.rows = Long.parseLong(args[1].replace("_", ""));
+            for (int i = 2; i < args.length; i++) {
+                String opt = args[i];
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + opt);
+                String value = args[++i];
+                switch (opt) {
+                    case "--seed": gen.seed = Long.parseLong(value); break;
+                    case "--accounts": gen.accounts = Integer.parseInt(value); break;
+                    case "--banks": gen.banks = Integer.parseInt(value); break;
+                    case "--fan-out": gen.fanOut = Integer.parseInt(value); break;
+                    case "--fan-in": gen.fanIn = Integer.parseInt(value); break;
+                    case "--hub-fraction": gen.hubFraction = Double.parseDouble(value); break;
+                    case "--hub-share": gen.hubShare = Double.parseDouble(value); break;
+                    case "--smurfing": gen.smurfing = Integer.parseInt(value); break;
+                    case "--layering": gen.layering = Integer.parseInt(value); break;
+                    case "--rings": gen.rings = Integer.parseInt(value); break;
+                    case "--days": gen.spanMinutes = Long.parseLong(value) * 24 * 60; break;
+                    default: throw new IllegalArgumentException("Opção desconhecida: " + opt);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERRO: " + e.getMessage());
+            usage();
+            return;
+        }
+
+        Path target = Paths.get(args[0]);
+        long start = System.nanoTime();
+        try {
+            Summary s = gen.write(target);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Gerado %s: %d linhas (%d de lavagem), %d contas em %.1f s%n",
+                target, s.rows, s.launderingRows, s.accounts, seconds);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o dataset: " + e.getMessage());
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Uso: java DatasetGenerator <saida.csv> <linhas> [opções]");
+        System.err.println("  --seed N          semente (padrão 42)");
+        System.err.println("  --accounts N      contas de fundo (padrão linhas/10)");
+        System.err.println("  --banks N         bancos (padrão 500)");
+        System.err.println("  --fan-out N       contrapartes distintas por pagador (padrão 4)");
+        System.err.println("  --fan-in N        pagadores distintos por recebedor (padrão 4)");
+        System.err.println("  --hub-fraction F  fração das contas que são hubs (padrão 0.001)");
+        System.err.println("  --hub-share P     probabilidade de a transação ir para um hub (padrão 0.05)");
+        System.err.println("  --smurfing N      rajadas de smurfing injetadas (padrão linhas/10000)");
+        System.err.println("  --layering N      cadeias de layering injetadas (padrão linhas/10000)");
+        System.err.println("  --rings N         anéis densos injetados (padrão linhas/10000)");
+        System.err.println("  --days N          período coberto (padrão 30)");
+    }
+
+    Summary write(Path target) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        int n = accounts > 0 ? accounts : (int) Math.max(100, Math.min(Integer.MAX_VALUE / 2, rows / 10));
+        int hubs = (int) Math.max(1, Math.round(n * hubFraction));
+        int receivers = (int) Math.max(1, Math.min(n, (long) n * Math.max(1, fanOut) / Math.max(1, fanIn)));
+        long perPattern = Math.max(1, rows / 10_000);
+        int smurfs = smurfing >= 0 ? smurfing : (int) perPattern;
+        int chains = layering >= 0 ? layering : (int) perPattern;
+        int ringCount = rings >= 0 ? rings : (int) perPattern;
+
+        // as contas dos padrões vêm depois das contas de fundo
+        PriorityQueue<Pending> pending = new PriorityQueue<>();
+        int[] nextAccount = {n};
+        long[] seq = {0};
+        for (int i = 0; i < smurfs; i++) injectSmurfing(rnd, pending, nextAccount, seq, receivers);
+        for (int i = 0; i < chains; i++) injectLayering(rnd, pending, nextAccount, seq);
+        for (int i = 0; i < ringCount; i++) injectRing(rnd, pending, nextAccount, seq);
+        long launderingRows = pending.size();
+        long background = Math.max(0, rows - launderingRows);
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8), 1 << 20)) {
+            out.write(HEADER);
+            out.write('\n');
+            StringBuilder sb = new StringBuilder(160);
+            long[] cachedMinute = {Long.MIN_VALUE};
+            String[] cachedStamp = {null};
+            for (long i = 0; i < background; i++) {
+                long minute = background == 0 ? 0 : i * spanMinutes / background;
+                while (!pending.isEmpty() && pending.peek().minute <= minute) {
+                    Pending p = pending.poll();
+                    writeRow(out, sb, p.minute, p.origin, p.destination, p.amount, true, cachedMinute, cachedStamp);
+                }
+                int origin = rnd.nextInt(n);
+                int destination;
+                if (rnd.nextDouble() < hubShare) {
+                    destination = rnd.nextInt(hubs);
+                } else {
+                    destination = counterparty(origin, rnd.nextInt(Math.max(1, fanOut)), receivers);
+                }
+                writeRow(out, sb, minute, origin, destination, backgroundAmount(rnd), false, cachedMinute, cachedStamp);
+            }
+            while (!pending.isEmpty()) {
+                Pending p = pending.poll();
+                writeRow(out, sb, p.minute, p.origin, p.destination, p.amount, true, cachedMinute, cachedStamp);
+            }
+        }
+        return new Summary(background + launderingRows, launderingRows, nextAccount[0]);
+    }
+
+    /** A j-ésima contraparte fixa da conta, entre os recebedores. */
+    private int counterparty(int account, int j, int receivers) {
+        long h = (account * 0x9E3779B97F4A7C15L) ^ (j * 0xC2B2AE3D27D4EB4FL) ^ seed;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) receivers);
+    }
+
+    private static double backgroundAmount(SplittableRandom rnd) {
+        // log-normal com mediana perto de 1.100
+        double v = Math.exp(7.0 + 1.4 * gaussian(rnd));
+        return Math.min(v, 5_000_000.0);
+    }
+
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1.0 - rnd.nextDouble(), v = rnd.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    private long anchor(SplittableRandom rnd) {
+        return rnd.nextLong(Math.max(1, spanMinutes - 3 * 24 * 60));
+    }
+
+    /** Origem nova paga de 6 a 10 valores pequenos em poucas horas. */
+    private void injectSmurfing(SplittableRandom rnd, PriorityQueue<Pending> pending, int[] nextAccount, long[] seq, int receivers) {
+        int origin = nextAccount[0]++;
+        long t = anchor(rnd);
+        int count = 6 + rnd.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            t += 5 + rnd.nextInt(120);
+            pending.add(new Pending(t, seq[0]++, origin, rnd.nextInt(receivers), 2_000 + rnd.nextDouble() * 7_000));
+        }
+    }
+
+    /** Cadeia de 3 a 5 saltos com taxa pequena por salto, cada um até 10 h depois do anterior. */
+    private void injectLayering(SplittableRandom rnd, PriorityQueue<Pending> pending, int[] nextAccount, long[] seq) {
+        int hops = 3 + rnd.nextInt(3);
+        int from = nextAccount[0]++;
+        long t = anchor(rnd);
+        double amount = 50_000 + rnd.nextDouble() * 450_000;
+        for (int i = 0; i < hops; i++) {
+            int to = nextAccount[0]++;
+            pending.add(new Pending(t, seq[0]++, from, to, amount));
+            amount -= 100 + rnd.nextDouble() * 2_000;
+            t += 30 + rnd.nextInt(570);
+            from = to;
+        }
+    }
+
+    /** Anel de 5 a 8 contas em que todos pagam a todos. */
+    private void injectRing(SplittableRandom rnd, PriorityQueue<Pending> pending, int[] nextAccount, long[] seq) {
+        int size = 5 + rnd.nextInt(4);
+        int first = nextAccount[0];
+        nextAccount[0] += size;
+        long t = anchor(rnd);
+        List<int[]> edges = new ArrayList<>();
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                if (a != b) edges.add(new int[]{first + a, first + b});
+            }
+        }
+        for (int[] e : edges) {
+            pending.add(new Pending(t + rnd.nextInt(2 * 24 * 60), seq[0]++, e[0], e[1], 1_000 + rnd.nextDouble() * 30_000));
+        }
+    }
+
+    private void writeRow(Writer out, StringBuilder sb, long minute, int origin, int destination, double amount,
+                          boolean laundering, long[] cachedMinute, String[] cachedStamp) throws IOException {
+        if (cachedMinute[0] != minute) {
+            cachedMinute[0] = minute;
+            cachedStamp[0] = stamp(minute);
+        }
+        String currency = CURRENCIES[Math.floorMod(origin, CURRENCIES.length)];
+        sb.setLength(0);
+        sb.append(cachedStamp[0]).append(',');
+        appendBank(sb, origin).append(',');
+        appendAccount(sb, origin).append(',');
+        appendBank(sb, destination).append(',');
+        appendAccount(sb, destination).append(',');
+        appendAmount(sb, amount).append(',').append(currency).append(',');
+        appendAmount(sb, amount).append(',').append(currency).append(',');
+        sb.append(FORMATS[Math.floorMod(origin * 31 + destination, FORMATS.length)]).append(',');
+        sb.append(laundering ? '1' : '0').append('\n');
+        out.append(sb);
+    }
+
+    private static String stamp(long minute) {
+        LocalDateTime t = START.plusMinutes(minute);
+        LocalDate d = t.toLocalDate();
+        StringBuilder sb = new StringBuilder(16);
+        sb.append(d.getYear()).append('/');
+        pad2(sb, d.getMonthValue()).append('/');
+        pad2(sb, d.getDayOfMonth()).append(' ');
+        pad2(sb, t.getHour()).append(':');
+        return pad2(sb, t.getMinute()).toString();
+    }
+
+    private static StringBuilder pad2(StringBuilder sb, int v) {
+        if (v < 10) sb.append('0');
+        return sb.append(v);
+    }
+
+    private StringBuilder appendBank(StringBuilder sb, int account) {
+        int bank = Math.floorMod(account, Math.max(1, banks));
+        String s = Integer.toString(bank);
+        for (int i = s.length(); i < 6; i++) sb.append('0');
+        return sb.append(s);
+    }
+
+    /** IDs no estilo do dataset original: 9 dígitos hexadecimais começando por 8. */
+    private static StringBuilder appendAccount(StringBuilder sb, int account) {
+        String hex = Long.toHexString(0x800000000L + ((long) account << 4)).toUpperCase();
+        return sb.append(hex);
+    }
+
+    private static StringBuilder appendAmount(StringBuilder sb, double amount) {
+        long cents = Math.round(amount * 100);
+        sb.append(cents / 100).append('.');
+        long c = cents % 100;
+        if (c < 10) sb.append('0');
+        return sb.append(c);
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executa os detectores selecionados, em sequência ou concorrentemente.
+ *
+ * Os detectores só leem o {@link TransactionGraph}, então podem rodar em
+ * paralelo sem sincronização. Os alertas são unidos sempre na ordem em que as
+ * tarefas foram registradas, de modo que o ranking não depende do escalonamento.
+ */
+final class DetectorExecutor {
+    enum ThreadKind { PLATFORM, VIRTUAL }
+
+    /**
+     * Um detector nomeado.
+     */
+    static final class Task {
+        final String name;
+        final Callable<List<Suspicion>> body;
+
+        Task(String name, Callable<List<Suspicion>> body) {
+            this.name = name;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Alertas unidos e tempos medidos de uma execução.
+     */
+    static final class Outcome {
+        final List<Suspicion> alerts;
+        /** Tempo de cada detector, na ordem das tarefas. */
+        final Map<String, Long> detectorNanos;
+        final long wallNanos;
+        final String mode;
+        /** Parede da passada sequencial de referência; -1 quando ela não rodou. */
+        final long sequentialWallNanos;
+
+        Outcome(List<Suspicion> alerts, Map<String, Long> detectorNanos, long wallNanos, String mode) {
+            this(alerts, detectorNanos, wallNanos, mode, -1);
+        }
+
+        private Outcome(List<Suspicion> alerts, Map<String, Long> detectorNanos, long wallNanos, String mode,
+                        long sequentialWallNanos) {
+            this.alerts = alerts;
+            this.detectorNanos = detectorNanos;
+            this.wallNanos = wallNanos;
+            this.mode = mode;
+            this.sequentialWallNanos = sequentialWallNanos;
+        }
+
+        Outcome withSequentialReference(long nanos) {
+            return new Outcome(alerts, detectorNanos, wallNanos, mode, nanos);
+        }
+
+        /** Parede sequencial sobre a parede desta execução; só existe com a passada de referência. */
+        double speedup() {
+            return wallNanos == 0 ? 1.0 : (double) sequentialWallNanos / wallNanos;
+        }
+
+        /** Soma dos tempos dos detectores, cada um medido na própria thread. */
+        long detectorTotalNanos() {
+            long sum = 0;
+            for (long t : detectorNanos.values()) sum += t;
+            return sum;
+        }
+
+        /**
+         * Paralelismo efetivo: quantos detectores, em média, rodaram ao mesmo
+         * tempo. Não é um speedup: sob concorrência cada detector disputa CPU e
+         * memória com os outros e pode levar mais tempo do que levaria sozinho;
+         * o speedup real é {@link #speedup()}.
+         */
+        double effectiveParallelism() {
+            return wallNanos == 0 ? 1.0 : (double) detectorTotalNanos() / wallNanos;
+        }
+    }
+
+    private final boolean concurrent;
+    private final int poolSize;
+    private final ThreadKind threadKind;
+
+    DetectorExecutor(boolean concurrent, int poolSize, ThreadKind threadKind) {
+        this.concurrent = concurrent;
+        this.poolSize = Math.max(1, poolSize);
+        this.threadKind = threadKind;
+    }
+
+    Outcome run(List<Task> tasks) {
+        long wallStart = System.nanoTime();
+        long[] nanos = new long[tasks.size()];
+        List<List<Suspicion>> partial = new ArrayList<>();
+        String mode;
+
+        if (!concurrent || tasks.size() < 2) {
+            mode = "sequencial";
+            for (int i = 0; i < tasks.size(); i++) partial.add(timed(tasks.get(i), nanos, i));
+        } else {
+            ExecutorService pool = newExecutor();
+            mode = describe(pool);
+            try {
+                List<Future<List<Suspicion>>> futures = new ArrayList<>();
+                for (int i = 0; i < tasks.size(); i++) {
+                    final int idx = i;
+                    futures.add(pool.submit(() -> timed(tasks.get(idx), nanos, idx)));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        partial.add(futures.get(i).get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Execução interrompida", e);
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Falha no detector " + tasks.get(i).name, e.getCause());
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long wall = System.nanoTime() - wallStart;
+
+        List<Suspicion> alerts = new ArrayList<>();
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            alerts.addAll(partial.get(i));
+            times.put(tasks.get(i).name, nanos[i]);
+        }
+        return new Outcome(alerts, times, wall, mode);
+    }
+
+    private static List<Suspicion> timed(Task task, long[] nanos, int idx) {
+        PipelineMetrics.Stage stage = PipelineMetrics.begin(task.name);
+        try {
+            List<Suspicion> res = task.body.call();
+            nanos[idx] = stage.end();
+            return res;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha no detector " + task.name, e);
+        }
+    }
+
+    /**
+     * Threads virtuais só existem a partir do Java 21; em JVMs anteriores o
+     * executor volta para um pool de threads de plataforma.
+     */
+    private ExecutorService newExecutor() {
+        if (threadKind == ThreadKind.VIRTUAL) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Threads virtuais indisponíveis nesta JVM; usando threads de plataforma.");
+            }
+        }
+        return Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "detector");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private String describe(ExecutorService pool) {
+        if (pool.getClass().getName().contains("ThreadPerTask")) return "concorrente, threads virtuais";
+        return "concorrente, " + poolSize + " threads de plataforma";
+    }
+}
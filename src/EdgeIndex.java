@@ -0,0 +1,43 @@
+/**
+ * Visão das arestas usada pelos detectores de grafo (layering e comunidades),
+ * independente de onde elas estão guardadas.
+ *
+ * As saídas da conta {@code a} ocupam as posições {@code firstOut(a) ..
+ * endOut(a) - 1}, ordenadas por (timestamp, linha); os vizinhos distintos no
+ * grafo não direcionado ocupam {@code firstNeighbour(a) .. endNeighbour(a) - 1}.
+ * {@link TransactionGraph} implementa a visão em memória e
+ * {@link PartitionedAnalysis} a versão mapeada de arquivos em disco.
+ */
+interface EdgeIndex {
+    int accountCount();
+
+    int firstOut(int account);
+
+    int endOut(int account);
+
+    /** Linha da transação na posição de saída {@code p}. */
+    int outRow(int p);
+
+    int outTarget(int p);
+
+    int outTime(int p);
+
+    double outAmount(int p);
+
+    /** Primeira posição de saída de account cuja transação é posterior a time ({@code endOut} se nenhuma). */
+    default int firstOutAfter(int account, long time) {
+        int lo = firstOut(account), hi = endOut(account);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (outTime(mid) <= time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    int firstNeighbour(int account);
+
+    int endNeighbour(int account);
+
+    int neighbour(int p);
+}
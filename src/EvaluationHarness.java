@@ -0,0 +1,271 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Qualidade contra custo dos detectores, medida com o rótulo "Is Laundering".
+ *
+ * Cada configuração da grade (produto cartesiano dos valores de --grid) roda os
+ * detectores selecionados, um de cada vez, sobre o mesmo grafo. Uma conta é
+ * positiva quando aparece em alguma transação rotulada como lavagem; no nível
+ * de conta a predição é o conjunto de contas alertadas, no nível de transação
+ * é a união das evidências. A linha "all" usa o ranking (com RANKING_TOP_K) e
+ * soma tempos e alertas dos detectores.
+ *
+ * Um detector cujos parâmetros não mudaram entre duas configurações não roda
+ * de novo: alertas, tempo e pico de heap da primeira execução são
+ * reaproveitados (coluna Reused). PeakHeapDeltaMB é o quanto o heap cresceu
+ * durante o detector: o uso de cada pool de heap logo depois de um GC, com o
+ * dataset e o grafo já carregados, é a linha de base, e soma-se o pico de cada
+ * pool acima da sua base. Como os picos dos pools não são simultâneos, é um
+ * limite superior do que o detector ocupou. Os tempos da primeira configuração
+ * incluem o aquecimento da JIT.
+ */
+final class EvaluationHarness {
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(p -> p.getType() == MemoryType.HEAP)
+        .collect(Collectors.toList());
+
+    private final BatchRunner.Parameters base;
+    private final Set<BatchRunner.Detector> detectors;
+    /** Valores de cada parâmetro da grade, na ordem de --grid. */
+    private final Map<String, double[]> grid;
+
+    EvaluationHarness(BatchRunner.Parameters base, Set<BatchRunner.Detector> detectors, Map<String, double[]> grid) {
+        this.base = base;
+        this.detectors = detectors;
+        this.grid = grid;
+    }
+
+    static List<String> usage() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Uso: java SuspicionPipeline --evaluate <arquivo.csv> [opções]");
+        lines.add("  --detectors  lista separada por vírgulas de flow, smurfing, layering, community, cycles (padrão all)");
+        lines.add("  --grid       valores de um parâmetro, por exemplo --grid LAYERING_MAX_DEPTH=2,3,4 (repetível)");
+        lines.add("  --set        fixa um parâmetro fora da grade, por exemplo --set SMURF_MIN_TX=8 (repetível)");
+        lines.add("  --out        arquivo da tabela (padrão evaluation_for_<dataset>.csv)");
+        return lines;
+    }
+
+    /** Lê {@code NOME=v1,v2,...} e confere o nome contra os parâmetros conhecidos. */
+    static void addGrid(Map<String, double[]> grid, BatchRunner.Parameters parameters, String spec) {
+        int eq = spec.indexOf('=');
+        if (eq < 0) throw new IllegalArgumentException("Esperado NOME=v1,v2,...: " + spec);
+        String name = spec.substring(0, eq);
+        String[] parts = spec.substring(eq + 1).split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = BatchRunner.Parameters.parseValue(name, parts[i].trim());
+            parameters.copy().set(name, values[i]);
+        }
+        grid.put(name, values);
+    }
+
+    /**
+     * Execução de um detector numa configuração.
+     */
+    private static final class Run {
+        final List<Suspicion> alerts;
+        final long nanos;
+        final long peakBytes;
+        final int truncatedOrigins;
+
+        Run(List<Suspicion> alerts, long nanos, long peakBytes, int truncatedOrigins) {
+            this.alerts = alerts;
+            this.nanos = nanos;
+            this.peakBytes = peakBytes;
+            this.truncatedOrigins = truncatedOrigins;
+        }
+    }
+
+    /**
+     * Rótulos do dataset: contas e transações positivas.
+     */
+    private static final class Labels {
+        final boolean[] account;
+        final BitSet rows = new BitSet();
+        final int accounts;
+
+        Labels(TransactionStore store) {
+            account = new boolean[store.accountCount()];
+            for (int row = 0; row < store.size; row++) {
+                if (store.laundering[row] == 0) continue;
+                rows.set(row);
+                account[store.origin[row]] = true;
+                account[store.destination[row]] = true;
+            }
+            int n = 0;
+            for (boolean positive : account) if (positive) n++;
+            accounts = n;
+        }
+    }
+
+    /** Roda a grade e grava a tabela; devolve o número de configurações. */
+    int run(TransactionStore store, String outputFile) throws IOException {
+        TransactionGraph graph = new TransactionGraph(store);
+        Labels labels = new Labels(store);
+        List<BatchRunner.Parameters> settings = settings();
+        System.out.println(String.format(">>> %d configurações | %d contas positivas, %d transações positivas",
+            settings.size(), labels.accounts, labels.rows.cardinality()));
+        if (labels.rows.isEmpty()) {
+            System.out.println(">>> Dataset sem transações rotuladas: recall e F1 ficam indefinidos (NaN).");
+        }
+
+        Map<String, Run> cache = new HashMap<>();
+        RiskRanker ranker = new RiskRanker();
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(outputFile), ResultExporter.BUFFER_BYTES))) {
+            StringBuilder header = new StringBuilder("Setting");
+            for (String name : grid.keySet()) header.append(',').append(name);
+            header.append(",Detector,Reused,RuntimeMs,PeakHeapDeltaMB,Alerts,TruncatedOrigins,FlaggedAccounts,FlaggedTransactions,")
+                .append("AccountPrecision,AccountRecall,AccountF1,TransactionPrecision,TransactionRecall,TransactionF1");
+            pw.println(header);
+
+            for (int k = 0; k < settings.size(); k++) {
+                BatchRunner.Parameters parameters = settings.get(k);
+                StringBuilder prefix = new StringBuilder().append(k + 1);
+                for (String name : grid.keySet()) prefix.append(',').append(parameters.format(name));
+
+                List<Suspicion> all = new ArrayList<>();
+                long totalNanos = 0, peakBytes = 0;
+                int truncated = 0;
+                boolean allReused = true;
+                for (BatchRunner.Detector d : detectors) {
+                    String key = cacheKey(d, parameters);
+                    boolean reused = cache.containsKey(key);
+                    Run run = reused ? cache.get(key) : measure(d, parameters, graph);
+                    cache.put(key, run);
+                    all.addAll(run.alerts);
+                    totalNanos += run.nanos;
+                    peakBytes = Math.max(peakBytes, run.peakBytes);
+                    truncated += run.truncatedOrigins;
+                    allReused &= reused;
+                    pw.println(row(prefix, d.option, reused, run.nanos, run.peakBytes, run.truncatedOrigins,
+                        run.alerts, run.alerts, labels).csv);
+                }
+
+                List<RiskRanker.Ranked> ranked = ranker.rank(all, parameters.getInt("RANKING_TOP_K"));
+                List<Suspicion> kept = new ArrayList<>();
+                for (RiskRanker.Ranked r : ranked) kept.addAll(r.alerts());
+                Row combined = row(prefix, "all", allReused, totalNanos, peakBytes, truncated, all, kept, labels);
+                pw.println(combined.csv);
+                System.out.println(String.format("[%d/%d] %s -> conta P/R/F1 %s | transação P/R/F1 %s | %d alertas, %d ms%s",
+                    k + 1, settings.size(), describe(parameters), combined.accountQuality.replace(',', '/'),
+                    combined.transactionQuality.replace(',', '/'), all.size(), TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                    truncated > 0 ? ", " + truncated + " origem(ns) no limite de estados" : ""));
+            }
+        }
+        return settings.size();
+    }
+
+    /** Produto cartesiano da grade; o último parâmetro varia mais rápido. */
+    private List<BatchRunner.Parameters> settings() {
+        List<BatchRunner.Parameters> res = new ArrayList<>();
+        res.add(base.copy());
+        for (Map.Entry<String, double[]> entry : grid.entrySet()) {
+            List<BatchRunner.Parameters> next = new ArrayList<>();
+            for (BatchRunner.Parameters p : res) {
+                for (double value : entry.getValue()) {
+                    BatchRunner.Parameters q = p.copy();
+                    q.set(entry.getKey(), value);
+                    next.add(q);
+                }
+            }
+            res = next;
+        }
+        return res;
+    }
+
+    private String describe(BatchRunner.Parameters parameters) {
+        if (grid.isEmpty()) return "padrão";
+        return grid.keySet().stream().map(name -> name + "=" + parameters.format(name)).collect(Collectors.joining(" "));
+    }
+
+    private static String cacheKey(BatchRunner.Detector d, BatchRunner.Parameters parameters) {
+        StringBuilder sb = new StringBuilder(d.name());
+        for (String name : d.parameters) sb.append('|').append(parameters.get(name));
+        return sb.toString();
+    }
+
+    private static Run measure(BatchRunner.Detector d, BatchRunner.Parameters parameters, TransactionGraph graph) {
+        AtomicInteger truncated = new AtomicInteger();
+        DetectorExecutor.Task task = BatchRunner.task(d, parameters, graph, new ArrayList<>(), truncated);
+        System.gc();
+        long[] baseline = new long[HEAP_POOLS.size()];
+        for (int i = 0; i < baseline.length; i++) {
+            MemoryPoolMXBean pool = HEAP_POOLS.get(i);
+            pool.resetPeakUsage();
+            baseline[i] = pool.getUsage().getUsed();
+        }
+        DetectorExecutor.Outcome outcome = new DetectorExecutor(false, 1, DetectorExecutor.ThreadKind.PLATFORM)
+            .run(Collections.singletonList(task));
+        long growth = 0;
+        for (int i = 0; i < baseline.length; i++) {
+            growth += Math.max(0, HEAP_POOLS.get(i).getPeakUsage().getUsed() - baseline[i]);
+        }
+        return new Run(outcome.alerts, outcome.detectorNanos.get(task.name), growth, truncated.get());
+    }
+
+    /**
+     * Linha CSV e as colunas de qualidade, que também vão para o console.
+     */
+    private static final class Row {
+        final String csv;
+        final String accountQuality;
+        final String transactionQuality;
+
+        Row(String csv, String accountQuality, String transactionQuality) {
+            this.csv = csv;
+            this.accountQuality = accountQuality;
+            this.transactionQuality = transactionQuality;
+        }
+    }
+
+    /**
+     * Linha da tabela. {@code alerts} conta o volume; {@code predicted} define
+     * as contas e transações preditas (na linha "all", só as que ficaram no ranking).
+     */
+    private static Row row(CharSequence prefix, String detector, boolean reused, long nanos, long peakBytes,
+                           int truncatedOrigins, List<Suspicion> alerts, List<Suspicion> predicted, Labels labels) {
+        BitSet accounts = new BitSet();
+        BitSet rows = new BitSet();
+        for (Suspicion s : predicted) {
+            accounts.set(s.account);
+            for (int row : s.evidence) rows.set(row);
+        }
+        int accountHits = 0;
+        for (int acc = accounts.nextSetBit(0); acc >= 0; acc = accounts.nextSetBit(acc + 1)) {
+            if (labels.account[acc]) accountHits++;
+        }
+        int flaggedRows = rows.cardinality();
+        rows.and(labels.rows);
+        String accountQuality = quality(accountHits, accounts.cardinality(), labels.accounts);
+        String transactionQuality = quality(rows.cardinality(), flaggedRows, labels.rows.cardinality());
+        String csv = prefix + "," + detector + "," + reused + "," + TimeUnit.NANOSECONDS.toMillis(nanos) + ","
+            + String.format(Locale.ROOT, "%.1f", peakBytes / (1024.0 * 1024.0)) + "," + alerts.size() + ","
+            + truncatedOrigins + "," + accounts.cardinality() + "," + flaggedRows + "," + accountQuality + "," + transactionQuality;
+        return new Row(csv, accountQuality, transactionQuality);
+    }
+
+    /** Precisão, recall e F1; NaN quando o denominador é zero. */
+    private static String quality(int hits, int predicted, int positives) {
+        double precision = predicted == 0 ? Double.NaN : (double) hits / predicted;
+        double recall = positives == 0 ? Double.NaN : (double) hits / positives;
+        double f1 = precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+        return String.format(Locale.ROOT, "%.4f,%.4f,%.4f", precision, recall, f1);
+    }
+}
@@ -0,0 +1,22 @@
+import java.util.ArrayList;
+import java.util.List;
+
+class FlowChecker {
+    static final double LIMITE_SUSPEITO = 100000.0;
+    public List<Suspicion> check(TransactionGraph graph) {
+        TransactionStore txs = graph.store;
+        double[] balancoContas = new double[graph.accountCount];
+        for (int i = 0; i < txs.size; i++) {
+            balancoContas[txs.destination[i]] += txs.amount[i];
+            balancoContas[txs.origin[i]] -= txs.amount[i];
+        }
+        List<Suspicion> results = new ArrayList<>();
+        for (int idDaConta = 0; idDaConta < balancoContas.length; idDaConta++) {
+            if (balancoContas[idDaConta] < -LIMITE_SUSPEITO) {
+                Suspicion alerta = new Suspicion(idDaConta, "Desequilíbrio de fluxo", 1, graph.transactionsOf(idDaConta));
+                results.add(alerta);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Detecta cadeias de layering: sequências de maxDepth transações em que cada
+ * salto sai da conta de destino do anterior, dentro da janela de tempo e com
+ * valor na faixa de +-delta do salto anterior, sem repetir contas.
+ *
+ * As origens são divididas entre os núcleos via fork/join. Cada origem gera no
+ * máximo um alerta, com a união das transações de todas as suas cadeias como
+ * evidência, e explora no máximo maxStates estados.
+*/
+class LayeringDetector extends PathSearchDetector {
+    private final int maxDepth; private final double delta; private final long timeWindow;
+    public LayeringDetector(int d, double v, long t) { this(d, v, t, DEFAULT_MAX_STATES); }
+    public LayeringDetector(int d, double v, long t, long s) { super(s); maxDepth = Math.max(1, d); delta = v; timeWindow = t; }
+
+    public List<Suspicion> detect(EdgeIndex graph) {
+        int n = graph.accountCount();
+        Bounds bounds = new Bounds(graph);
+        int[][] evidence = new int[n][];
+        boolean[] truncated = new boolean[n];
+        ForkJoinPool.commonPool().invoke(new SeedTask(graph, bounds, 0, n, evidence, truncated));
+
+        List<Suspicion> res = new ArrayList<>();
+        int truncatedCount = 0;
+        for (int acc = 0; acc < n; acc++) {
+            if (truncated[acc]) truncatedCount++;
+            if (evidence[acc] != null) res.add(new Suspicion(acc, "Layering detectado", 3, evidence[acc]));
+        }
+        truncatedOrigins = truncatedCount;
+        return res;
+    }
+
+    /**
+     * Faixa de valores enviados por conta, usada na poda: uma conta só continua
+     * a cadeia se alguma de suas saídas cabe na faixa de +-delta do salto atual.
+     */
+    private static final class Bounds {
+        final double[] minOut;
+        final double[] maxOut;
+
+        Bounds(EdgeIndex graph) {
+            int n = graph.accountCount();
+            minOut = new double[n];
+            maxOut = new double[n];
+            for (int acc = 0; acc < n; acc++) {
+                int from = graph.firstOut(acc), to = graph.endOut(acc);
+                if (from == to) continue;
+                double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+                for (int p = from; p < to; p++) {
+                    double amt = graph.outAmount(p);
+                    lo = Math.min(lo, amt);
+                    hi = Math.max(hi, amt);
+                }
+                minOut[acc] = lo;
+                maxOut[acc] = hi;
+            }
+        }
+    }
+
+    /**
+     * Divide as contas de origem em faixas com número parecido de arestas de saída.
+     */
+    private final class SeedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final EdgeIndex graph; private final Bounds bounds;
+        private final int lo, hi; private final int[][] evidence; private final boolean[] truncated;
+
+        SeedTask(EdgeIndex graph, Bounds bounds, int lo, int hi, int[][] evidence, boolean[] truncated) {
+            this.graph = graph; this.bounds = bounds; this.lo = lo; this.hi = hi;
+            this.evidence = evidence; this.truncated = truncated;
+        }
+
+        @Override
+        protected void compute() {
+            // firstOut é não decrescente na conta, e firstOut(hi) é o fim das saídas de hi - 1
+            int mid = split(lo, hi, graph::firstOut);
+            if (mid >= 0) {
+                invokeAll(new SeedTask(graph, bounds, lo, mid, evidence, truncated),
+                          new SeedTask(graph, bounds, mid, hi, evidence, truncated));
+                return;
+            }
+            Search search = new Search(graph, bounds);
+            PipelineMetrics.Sampler sampler = new PipelineMetrics.Sampler();
+            long expanded = 0, truncatedOrigins = 0;
+            for (int acc = lo; acc < hi; acc++) {
+                if (graph.firstOut(acc) == graph.endOut(acc)) continue;
+                evidence[acc] = search.explore(acc);
+                truncated[acc] = search.exhausted;
+                expanded += search.states;
+                if (search.exhausted) truncatedOrigins++;
+                if (sampler.sample()) PipelineMetrics.sample(PipelineMetrics.Histogram.DFS_STATES_PER_ORIGIN, acc, search.states);
+            }
+            PipelineMetrics.add(PipelineMetrics.Counter.DFS_STATES_EXPANDED, expanded);
+            PipelineMetrics.add(PipelineMetrics.Counter.DFS_STATES_PRUNED, search.pruned);
+            PipelineMetrics.add(PipelineMetrics.Counter.DFS_WINDOW_SKIPPED, search.windowSkipped);
+            PipelineMetrics.add(PipelineMetrics.Counter.DFS_TRUNCATED_ORIGINS, truncatedOrigins);
+        }
+    }
+
+    /**
+     * Busca em profundidade a partir de uma origem. O caminho atual fica em
+     * arrays de tamanho maxDepth, então verificar contas repetidas custa O(maxDepth).
+     * Cada aresta candidata examinada conta como um estado explorado; as que
+     * não passam nos testes de valor, caminho ou limites contam como podadas.
+     */
+    private final class Search {
+        private final EdgeIndex graph; private final Bounds bounds;
+        private final int[] accounts = new int[maxDepth + 1];
+        /** Posições de saída das arestas do caminho atual. */
+        private final int[] edges = new int[maxDepth];
+        private final RowSet found = new RowSet();
+        private long states;
+        boolean exhausted;
+        /** Acumulados de todas as origens desta busca, para as métricas. */
+        long pruned, windowSkipped;
+
+        Search(EdgeIndex graph, Bounds bounds) {
+            this.graph = graph; this.bounds = bounds;
+        }
+
+        /** Devolve as transações (ordenadas, sem repetição) de todas as cadeias da origem, ou null. */
+        int[] explore(int origin) {
+            found.clear(); states = 0; exhausted = false;
+            accounts[0] = origin;
+            for (int p = graph.firstOut(origin), end = graph.endOut(origin); p < end && !exhausted; p++) {
+                edges[0] = p;
+                accounts[1] = graph.outTarget(p);
+                extend(1);
+            }
+            return found.size == 0 ? null : found.sorted();
+        }
+
+        private void extend(int len) {
+            if (len >= maxDepth) {
+                for (int i = 0; i < len; i++) found.add(graph.outRow(edges[i]));
+                return;
+            }
+            int cur = accounts[len];
+            int prev = edges[len - 1];
+            int prevTime = graph.outTime(prev);
+            double prevAmt = graph.outAmount(prev);
+            // arestas de saída ordenadas por tempo: a janela termina em prevTime + timeWindow
+            int start = graph.firstOut(cur);
+            int end = graph.firstOutAfter(cur, prevTime + timeWindow);
+            windowSkipped += graph.endOut(cur) - end;
+            for (int p = start; p < end; p++) {
+                if (++states > maxStates) { exhausted = true; return; }
+                double amt = graph.outAmount(p);
+                if (Math.abs(amt - prevAmt) > delta) { pruned++; continue; }
+                int dst = graph.outTarget(p);
+                if (onPath(accounts, len, dst) || (len + 1 < maxDepth && !canContinue(dst, amt))) { pruned++; continue; }
+                edges[len] = p;
+                accounts[len + 1] = dst;
+                extend(len + 1);
+                if (exhausted) return;
+            }
+        }
+
+        private boolean canContinue(int account, double amt) {
+            return graph.firstOut(account) < graph.endOut(account)
+                && bounds.maxOut[account] >= amt - delta
+                && bounds.minOut[account] <= amt + delta;
+        }
+    }
+
+    /**
+     * Conjunto de índices de linha com endereçamento aberto, reutilizado entre
+     * origens para deduplicar as transações das cadeias sobrepostas.
+     */
+    private static final class RowSet {
+        private int[] table = new int[64];
+        private int[] items = new int[32];
+        int size;
+
+        RowSet() {
+            Arrays.fill(table, -1);
+        }
+
+        void add(int row) {
+            int mask = table.length - 1;
+            int slot = ((row * 0x9E3779B9) >>> 1) & mask;
+            while (table[slot] != -1) {
+                if (table[slot] == row) return;
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = row;
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = row;
+            if (size * 2 > table.length) grow();
+        }
+
+        private void grow() {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+            int n = size;
+            size = 0;
+            for (int i = 0; i < n; i++) add(items[i]);
+        }
+
+        int[] sorted() {
+            int[] res = Arrays.copyOf(items, size);
+            Arrays.sort(res);
+            return res;
+        }
+
+        void clear() {
+            if (table.length > 4096) {
+                table = new int[64];
+                items = new int[32];
+            }
+            Arrays.fill(table, -1);
+            size = 0;
+        }
+    }
+}
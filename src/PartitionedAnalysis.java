@@ -0,0 +1,550 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Análise fora da memória para datasets maiores que o heap.
+ *
+ * O CSV é lido uma vez com {@link CsvLoader#stream} e cada transação é gravada
+ * no arquivo de spill da partição da conta de origem (hash do ID) e, se for
+ * outra, também no da conta de destino. Assim cada partição tem todas as
+ * transações incidentes nas contas que lhe pertencem, e FlowChecker e
+ * SmurfingDetector rodam partição por partição sobre um índice local, só com
+ * os alertas das contas da partição. Na mesma passada as saídas e os vizinhos
+ * distintos de cada conta são gravados em colunas mapeadas em disco no layout
+ * CSR, que LayeringDetector, CommunityDetector e CycleDetector percorrem pelo
+ * {@link EdgeIndex}. Em heap ficam só o dicionário de contas, arrays por conta
+ * e uma partição por vez.
+ *
+ * Linhas, IDs de contas e ordem das saídas são os mesmos da carga em memória,
+ * então os alertas também são.
+ */
+final class PartitionedAnalysis {
+    /** Registro de spill: linha, origem, destino, timestamp e valor. */
+    private static final int RECORD_BYTES = 4 + 4 + 4 + 4 + 8;
+    /** Heap por registro de uma partição carregada: colunas locais mais o TransactionGraph. */
+    private static final int RECORD_HEAP_BYTES = 96;
+    /** Linha de CSV mais curta plausível, para estimar o número de linhas pelo tamanho. */
+    private static final int MIN_LINE_BYTES = 48;
+    private static final int MAX_PARTITIONS = 4096;
+
+    private final long budgetBytes;
+    private final Path spillRoot;
+    private final FlowChecker flow;
+    private final SmurfingDetector smurfing;
+    private final LayeringDetector layering;
+    private final CommunityDetector community;
+    private final CycleDetector cycles;
+
+    /**
+     * Detectores nulos não são executados.
+     */
+    PartitionedAnalysis(long budgetBytes, Path spillRoot, FlowChecker flow, SmurfingDetector smurfing,
+                        LayeringDetector layering, CommunityDetector community, CycleDetector cycles) {
+        this.budgetBytes = Math.max(1 << 20, budgetBytes);
+        this.spillRoot = spillRoot;
+        this.flow = flow;
+        this.smurfing = smurfing;
+        this.layering = layering;
+        this.community = community;
+        this.cycles = cycles;
+    }
+
+    /**
+     * Alertas e estatísticas de uma análise particionada.
+     */
+    static final class Result {
+        final StringDictionary accounts;
+        final DetectorExecutor.Outcome outcome;
+        final List<CommunityDetector.Community> communities;
+        final CsvLoader.Result parse;
+        final int partitions;
+        final long spilledBytes;
+        /** Etapas que não são detectores (spill e índices), em ordem. */
+        final Map<String, Long> stageNanos;
+
+        Result(StringDictionary accounts, DetectorExecutor.Outcome outcome, List<CommunityDetector.Community> communities,
+               CsvLoader.Result parse, int partitions, long spilledBytes, Map<String, Long> stageNanos) {
+            this.accounts = accounts;
+            this.outcome = outcome;
+            this.communities = communities;
+            this.parse = parse;
+            this.partitions = partitions;
+            this.spilledBytes = spilledBytes;
+            this.stageNanos = stageNanos;
+        }
+    }
+
+    Result run(Path csv, CsvLoader loader) throws IOException {
+        long wallStart = System.nanoTime();
+        Files.createDirectories(spillRoot);
+        Path dir = Files.createTempDirectory(spillRoot, "spill-");
+        try {
+            return analyse(csv, loader, dir, wallStart);
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    private Result analyse(Path csv, CsvLoader loader, Path dir, long wallStart) throws IOException {
+        Map<String, Long> stages = new LinkedHashMap<>();
+        Map<String, Long> detectorNanos = new LinkedHashMap<>();
+        int partitions = partitionCount(Files.size(csv));
+
+        // passada 1: CSV -> arquivos de spill por partição
+        PipelineMetrics.Stage spillStage = PipelineMetrics.begin("Particionamento (spill)");
+        StringDictionary accounts = new StringDictionary();
+        SpillWriter[] writers = new SpillWriter[partitions];
+        int bufferBytes = (int) Math.max(16 << 10, Math.min(1 << 20, budgetBytes / (4L * partitions)));
+        int[][] outDegree = {new int[1024]};
+        CsvLoader.Result parse;
+        try {
+            for (int p = 0; p < partitions; p++) writers[p] = new SpillWriter(spillFile(dir, p), bufferBytes);
+            parse = loader.stream(csv, accounts, (row, origin, destination, amount, timestamp) -> {
+                int po = partitionOf(origin, partitions), pd = partitionOf(destination, partitions);
+                writers[po].write(row, origin, destination, timestamp, amount);
+                if (pd != po) writers[pd].write(row, origin, destination, timestamp, amount);
+                if (origin >= outDegree[0].length) {
+                    outDegree[0] = Arrays.copyOf(outDegree[0], Math.max(origin + 1, outDegree[0].length * 2));
+                }
+                outDegree[0][origin]++;
+            });
+        } finally {
+            for (SpillWriter w : writers) if (w != null) w.close();
+        }
+        long spilled = 0;
+        for (SpillWriter w : writers) spilled += w.bytes;
+        stages.put("Particionamento (spill)", spillStage.end());
+
+        int n = accounts.size(), m = parse.rows;
+        boolean graphDetectors = layering != null || community != null || cycles != null;
+        int[] outStart = new int[n + 1];
+        for (int a = 0; a < n; a++) outStart[a + 1] = outStart[a] + (a < outDegree[0].length ? outDegree[0][a] : 0);
+        outDegree[0] = null;
+
+        DiskEdgeIndex index = null;
+        Path neighbourFile = dir.resolve("neighbours.tmp");
+        int[] neighbourCount = graphDetectors ? new int[n] : null;
+        List<Suspicion> flowAlerts = new ArrayList<>(), smurfAlerts = new ArrayList<>();
+        long flowNanos = 0, smurfNanos = 0, localIndexNanos = 0;
+        try (DataOutputStream neighbours = graphDetectors
+                ? new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(neighbourFile), 1 << 16)) : null) {
+            if (graphDetectors) index = new DiskEdgeIndex(dir, n, m, outStart);
+
+            // passada 2: uma partição por vez
+            for (int p = 0; p < partitions; p++) {
+                Path file = spillFile(dir, p);
+                PipelineMetrics.Stage stage = PipelineMetrics.begin("Índices das partições");
+                Partition part = Partition.read(file);
+                TransactionGraph local = part.size == 0 ? null : part.graph();
+                localIndexNanos += stage.end();
+                if (local == null) continue;
+
+                if (flow != null) {
+                    stage = PipelineMetrics.begin("FlowChecker");
+                    part.collect(flow.check(local), p, partitions, flowAlerts);
+                    flowNanos += stage.end();
+                }
+                if (smurfing != null) {
+                    stage = PipelineMetrics.begin("SmurfingDetector");
+                    part.collect(smurfing.detect(local), p, partitions, smurfAlerts);
+                    smurfNanos += stage.end();
+                }
+                if (graphDetectors) {
+                    stage = PipelineMetrics.begin("Índices das partições");
+                    part.writeEdges(local, p, partitions, index, neighbours, neighbourCount);
+                    localIndexNanos += stage.end();
+                }
+            }
+        }
+        stages.put("Índices das partições", localIndexNanos);
+        if (flow != null) detectorNanos.put("FlowChecker", flowNanos);
+        if (smurfing != null) detectorNanos.put("SmurfingDetector", smurfNanos);
+
+        List<Suspicion> layeringAlerts = Collections.emptyList(), communityAlerts = Collections.emptyList();
+        List<Suspicion> cycleAlerts = Collections.emptyList();
+        List<CommunityDetector.Community> communities = Collections.emptyList();
+        if (graphDetectors) {
+            // passada 3: listas de vizinhos espalhadas para a posição CSR de cada conta
+            PipelineMetrics.Stage stage = PipelineMetrics.begin("Índice em disco");
+            index.loadNeighbours(neighbourFile, neighbourCount);
+            stages.put("Índice em disco", stage.end());
+
+            if (layering != null) {
+                stage = PipelineMetrics.begin("LayeringDetector");
+                layeringAlerts = layering.detect(index);
+                detectorNanos.put("LayeringDetector", stage.end());
+            }
+            if (community != null) {
+                stage = PipelineMetrics.begin("CommunityDetector");
+                communities = community.findCommunities(index);
+                communityAlerts = community.toSuspicions(communities);
+                detectorNanos.put("CommunityDetector", stage.end());
+            }
+            if (cycles != null) {
+                stage = PipelineMetrics.begin("CycleDetector");
+                cycleAlerts = cycles.detect(index);
+                detectorNanos.put("CycleDetector", stage.end());
+            }
+        }
+
+        List<Suspicion> alerts = new ArrayList<>();
+        alerts.addAll(flowAlerts);
+        alerts.addAll(smurfAlerts);
+        alerts.addAll(layeringAlerts);
+        alerts.addAll(communityAlerts);
+        alerts.addAll(cycleAlerts);
+        DetectorExecutor.Outcome outcome = new DetectorExecutor.Outcome(alerts, detectorNanos,
+            System.nanoTime() - wallStart, "fora da memória, " + partitions + " partições");
+        return new Result(accounts, outcome, communities, parse, partitions, spilled, stages);
+    }
+
+    /** Partições suficientes para que cada uma, carregada, caiba no orçamento. */
+    int partitionCount(long csvBytes) {
+        long records = 2 * Math.max(1, csvBytes / MIN_LINE_BYTES);
+        long needed = (records * RECORD_HEAP_BYTES + budgetBytes - 1) / budgetBytes;
+        return (int) Math.max(1, Math.min(MAX_PARTITIONS, needed));
+    }
+
+    static int partitionOf(int account, int partitions) {
+        return ((account * 0x9E3779B9) >>> 1) % partitions;
+    }
+
+    private static Path spillFile(Path dir, int p) {
+        return dir.resolve("part-" + p + ".bin");
+    }
+
+    private static void deleteAll(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(f -> {
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException e) {
+                    f.toFile().deleteOnExit();
+                }
+            });
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            dir.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Grava registros de spill em um buffer próprio, descarregado no canal quando enche.
+     */
+    private static final class SpillWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+        long bytes;
+
+        SpillWriter(Path file, int bufferBytes) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+            buf = ByteBuffer.allocate(bufferBytes / RECORD_BYTES * RECORD_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        void write(int row, int origin, int destination, int timestamp, double amount) throws IOException {
+            if (buf.remaining() < RECORD_BYTES) flush();
+            buf.putInt(row).putInt(origin).putInt(destination).putInt(timestamp).putDouble(amount);
+            bytes += RECORD_BYTES;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Uma partição carregada: as transações na ordem do arquivo, com as contas
+     * renumeradas localmente (em ordem crescente de ID global).
+     */
+    private static final class Partition {
+        final int size;
+        final int[] rows;
+        final int[] globalAccount;
+        final int[] origin;
+        final int[] destination;
+        final int[] timestamp;
+        final double[] amount;
+
+        private Partition(int size, int[] rows, int[] globalAccount, int[] origin, int[] destination,
+                          int[] timestamp, double[] amount) {
+            this.size = size;
+            this.rows = rows;
+            this.globalAccount = globalAccount;
+            this.origin = origin;
+            this.destination = destination;
+            this.timestamp = timestamp;
+            this.amount = amount;
+        }
+
+        static Partition read(Path file) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long bytes = ch.size();
+                if (bytes / RECORD_BYTES > Integer.MAX_VALUE - 8 || bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Partição acima de 2 GB; aumente o número de partições");
+                }
+                int size = (int) (bytes / RECORD_BYTES);
+                int[] rows = new int[size], origin = new int[size], destination = new int[size], timestamp = new int[size];
+                double[] amount = new double[size];
+                if (size > 0) {
+                    MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+                    buf.order(ByteOrder.nativeOrder());
+                    for (int i = 0; i < size; i++) {
+                        rows[i] = buf.getInt();
+                        origin[i] = buf.getInt();
+                        destination[i] = buf.getInt();
+                        timestamp[i] = buf.getInt();
+                        amount[i] = buf.getDouble();
+                    }
+                }
+
+                int[] ids = new int[2 * size];
+                System.arraycopy(origin, 0, ids, 0, size);
+                System.arraycopy(destination, 0, ids, size, size);
+                Arrays.sort(ids);
+                int distinct = 0;
+                for (int i = 0; i < ids.length; i++) {
+                    if (i == 0 || ids[i] != ids[i - 1]) ids[distinct++] = ids[i];
+                }
+                int[] globalAccount = Arrays.copyOf(ids, distinct);
+                for (int i = 0; i < size; i++) {
+                    origin[i] = Arrays.binarySearch(globalAccount, origin[i]);
+                    destination[i] = Arrays.binarySearch(globalAccount, destination[i]);
+                }
+                return new Partition(size, rows, globalAccount, origin, destination, timestamp, amount);
+            }
+        }
+
+        /**
+         * Índice local. O store só tem as colunas que os detectores leem; as
+         * linhas locais seguem a ordem do arquivo, então desempates por linha
+         * dão o mesmo resultado da carga em memória.
+         */
+        TransactionGraph graph() {
+            TransactionStore store = new TransactionStore(new StringDictionary(), new StringDictionary(),
+                new StringDictionary(), new StringDictionary(), size, origin, destination, amount, timestamp,
+                null, null, null, null, null);
+            return new TransactionGraph(store, globalAccount.length);
+        }
+
+        private boolean owns(int local, int p, int partitions) {
+            return partitionOf(globalAccount[local], partitions) == p;
+        }
+
+        /** Mantém só os alertas de contas da partição, traduzidos para IDs e linhas globais. */
+        void collect(List<Suspicion> local, int p, int partitions, List<Suspicion> out) {
+            for (Suspicion s : local) {
+                if (!owns(s.account, p, partitions)) continue;
+                int[] evidence = new int[s.evidence.length];
+                for (int i = 0; i < evidence.length; i++) evidence[i] = rows[s.evidence[i]];
+                out.add(new Suspicion(globalAccount[s.account], s.reason, s.score, evidence));
+            }
+        }
+
+        /**
+         * Grava as saídas das contas da partição nas posições CSR globais e
+         * anexa suas listas de vizinhos distintos (conta, quantidade, vizinhos)
+         * ao arquivo temporário.
+         */
+        void writeEdges(TransactionGraph local, int p, int partitions, DiskEdgeIndex index,
+                        DataOutputStream neighbours, int[] neighbourCount) throws IOException {
+            for (int v = 0; v < globalAccount.length; v++) {
+                if (!owns(v, p, partitions)) continue;
+                int account = globalAccount[v];
+                int pos = index.firstOut(account);
+                for (int q = local.outStart[v]; q < local.outStart[v + 1]; q++) {
+                    int row = local.outRows[q];
+                    index.putOut(pos++, rows[row], globalAccount[destination[row]], timestamp[row], amount[row]);
+                }
+                int count = local.neighbourCount(v);
+                neighbourCount[account] = count;
+                neighbours.writeInt(account);
+                neighbours.writeInt(count);
+                for (int q = local.nbrStart[v]; q < local.nbrStart[v + 1]; q++) {
+                    neighbours.writeInt(globalAccount[local.nbrs[q]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link EdgeIndex} com as colunas de saídas e vizinhos mapeadas de
+     * arquivos; só os offsets CSR ficam em heap.
+     */
+    private static final class DiskEdgeIndex implements EdgeIndex {
+        private final Path dir;
+        private final int accountCount;
+        private final int[] outStart;
+        private int[] nbrStart;
+        private final IntColumn outRow, outTarget, outTime;
+        private final DoubleColumn outAmount;
+        private IntColumn nbrs;
+
+        DiskEdgeIndex(Path dir, int accountCount, int edges, int[] outStart) throws IOException {
+            this.dir = dir;
+            this.accountCount = accountCount;
+            this.outStart = outStart;
+            outRow = new IntColumn(dir.resolve("out-row.bin"), edges);
+            outTarget = new IntColumn(dir.resolve("out-target.bin"), edges);
+            outTime = new IntColumn(dir.resolve("out-time.bin"), edges);
+            outAmount = new DoubleColumn(dir.resolve("out-amount.bin"), edges);
+        }
+
+        void putOut(int p, int row, int target, int time, double amount) {
+            outRow.set(p, row);
+            outTarget.set(p, target);
+            outTime.set(p, time);
+            outAmount.set(p, amount);
+        }
+
+        void loadNeighbours(Path file, int[] neighbourCount) throws IOException {
+            nbrStart = new int[accountCount + 1];
+            for (int a = 0; a < accountCount; a++) {
+                nbrStart[a + 1] = Math.addExact(nbrStart[a], neighbourCount[a]);
+            }
+            nbrs = new IntColumn(dir.resolve("neighbours.bin"), nbrStart[accountCount]);
+            // cada conta aparece em alguma transação, logo pertence a uma partição e tem uma lista
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                for (int listed = 0; listed < accountCount; listed++) {
+                    int account = in.readInt();
+                    int count = in.readInt();
+                    for (int i = 0, pos = nbrStart[account]; i < count; i++) nbrs.set(pos + i, in.readInt());
+                }
+            }
+        }
+
+        @Override
+        public int accountCount() {
+            return accountCount;
+        }
+
+        @Override
+        public int firstOut(int account) {
+            return outStart[account];
+        }
+
+        @Override
+        public int endOut(int account) {
+            return outStart[account + 1];
+        }
+
+        @Override
+        public int outRow(int p) {
+            return outRow.get(p);
+        }
+
+        @Override
+        public int outTarget(int p) {
+            return outTarget.get(p);
+        }
+
+        @Override
+        public int outTime(int p) {
+            return outTime.get(p);
+        }
+
+        @Override
+        public double outAmount(int p) {
+            return outAmount.get(p);
+        }
+
+        @Override
+        public int firstNeighbour(int account) {
+            return nbrStart[account];
+        }
+
+        @Override
+        public int endNeighbour(int account) {
+            return nbrStart[account + 1];
+        }
+
+        @Override
+        public int neighbour(int p) {
+            return nbrs.get(p);
+        }
+    }
+
+    /**
+     * Coluna de ints em um arquivo mapeado em segmentos de 1 GB.
+     */
+    private static final class IntColumn {
+        private static final int SHIFT = 28;
+        private static final int MASK = (1 << SHIFT) - 1;
+        private final MappedByteBuffer[] segments;
+
+        IntColumn(Path file, int count) throws IOException {
+            segments = map(file, (long) count * 4, SHIFT + 2);
+        }
+
+        int get(int i) {
+            return segments[i >>> SHIFT].getInt((i & MASK) << 2);
+        }
+
+        void set(int i, int v) {
+            segments[i >>> SHIFT].putInt((i & MASK) << 2, v);
+        }
+    }
+
+    /**
+     * Coluna de doubles em um arquivo mapeado em segmentos de 1 GB.
+     */
+    private static final class DoubleColumn {
+        private static final int SHIFT = 27;
+        private static final int MASK = (1 << SHIFT) - 1;
+        private final MappedByteBuffer[] segments;
+
+        DoubleColumn(Path file, int count) throws IOException {
+            segments = map(file, (long) count * 8, SHIFT + 3);
+        }
+
+        double get(int i) {
+            return segments[i >>> SHIFT].getDouble((i & MASK) << 3);
+        }
+
+        void set(int i, double v) {
+            segments[i >>> SHIFT].putDouble((i & MASK) << 3, v);
+        }
+    }
+
+    private static MappedByteBuffer[] map(Path file, long bytes, int segmentShift) throws IOException {
+        long segmentBytes = 1L << segmentShift;
+        int count = (int) ((bytes + segmentBytes - 1) / segmentBytes);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int s = 0; s < count; s++) {
+                long offset = s * segmentBytes;
+                segments[s] = ch.map(FileChannel.MapMode.READ_WRITE, offset, Math.min(segmentBytes, bytes - offset));
+                segments[s].order(ByteOrder.nativeOrder());
+            }
+        }
+        return segments;
+    }
+}
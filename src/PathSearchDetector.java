@@ -0,0 +1,51 @@
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Base dos detectores que exploram caminhos temporais por busca em
+ * profundidade a partir de cada origem (layering e ciclos).
+ *
+ * Guarda o limite de estados por origem e quantas origens o atingiram, e
+ * divide as origens entre as tarefas de fork/join pelo número de arestas.
+ */
+abstract class PathSearchDetector {
+    static final long DEFAULT_MAX_STATES = 1_000_000;
+    /** Arestas de saída abaixo das quais uma faixa de origens não é mais dividida. */
+    static final int SEED_GRAIN = 4096;
+
+    final long maxStates;
+    volatile int truncatedOrigins;
+
+    PathSearchDetector(long maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /** Origens que atingiram maxStates na última chamada de detect; quem chamou decide como relatar. */
+    int truncatedOrigins() { return truncatedOrigins; }
+    long maxStates() { return maxStates; }
+
+    /**
+     * Ponto de corte de [lo, hi) que deixa metade das arestas de cada lado, ou
+     * -1 quando a faixa já é pequena. {@code edgesBefore(i)} é o número de
+     * arestas das origens antes de i, não decrescente, válido até hi.
+     */
+    static int split(int lo, int hi, IntUnaryOperator edgesBefore) {
+        int edgesLo = edgesBefore.applyAsInt(lo), edgesHi = edgesBefore.applyAsInt(hi);
+        if (hi - lo <= 1 || edgesHi - edgesLo <= SEED_GRAIN) return -1;
+        int half = edgesLo + (edgesHi - edgesLo) / 2;
+        int a = lo, b = hi;
+        while (a < b) {
+            int m = (a + b) >>> 1;
+            if (edgesBefore.applyAsInt(m) < half) a = m + 1;
+            else b = m;
+        }
+        return Math.max(lo + 1, Math.min(hi - 1, a));
+    }
+
+    /** Se account está entre as contas 0..len do caminho atual. */
+    static boolean onPath(int[] accounts, int len, int account) {
+        for (int i = 0; i <= len; i++) {
+            if (accounts[i] == account) return true;
+        }
+        return false;
+    }
+}
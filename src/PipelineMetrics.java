@@ -0,0 +1,364 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Contadores, histogramas e custos por etapa do pipeline.
+ *
+ * Os contadores são exatos e estão sempre ligados: os laços quentes acumulam em
+ * variáveis locais e publicam uma vez por tarefa ou por conta, então o custo
+ * fica fora do laço. Os histogramas por conta são amostrados, uma observação a
+ * cada {@link #sampleRate()} contas, cada uma também vira um evento JFR.
+ *
+ * Cada etapa ({@link #begin}) mede tempo de parede, bytes alocados por todas as
+ * threads e tempo de GC. Com detectores concorrentes as etapas se sobrepõem, e
+ * alocação e GC de uma incluem os das outras.
+ *
+ * Os eventos JFR só são gravados com uma gravação ativa, por exemplo
+ * {@code -XX:StartFlightRecording=filename=pipeline.jfr}.
+ */
+final class PipelineMetrics {
+    static final int DEFAULT_SAMPLE_RATE = 256;
+
+    enum Counter {
+        ROWS_PARSED("parse.rows"),
+        ROWS_REJECTED("parse.rejected"),
+        DFS_STATES_EXPANDED("layering.states_expanded"),
+        DFS_STATES_PRUNED("layering.states_pruned"),
+        DFS_WINDOW_SKIPPED("layering.window_skipped"),
+        DFS_TRUNCATED_ORIGINS("layering.truncated_origins"),
+        SMURF_WINDOW_COMPARISONS("smurfing.window_comparisons"),
+        PEEL_OPERATIONS("community.peel_operations"),
+        CYCLE_STATES_EXPANDED("cycles.states_expanded"),
+        CYCLE_STATES_PRUNED("cycles.states_pruned"),
+        CYCLES_FOUND("cycles.found"),
+        CYCLE_TRUNCATED_ORIGINS("cycles.truncated_origins"),
+        PRESCREEN_ACCOUNTS_DROPPED("prescreen.accounts_dropped"),
+        PRESCREEN_ROWS_DROPPED("prescreen.rows_dropped");
+
+        final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    enum Histogram {
+        DFS_STATES_PER_ORIGIN("layering.states_per_origin"),
+        SMURF_COMPARISONS_PER_ACCOUNT("smurfing.comparisons_per_account"),
+        PEEL_MOVES_PER_ACCOUNT("community.peel_moves_per_account"),
+        CYCLE_STATES_PER_ORIGIN("cycles.states_per_origin"),
+        EVIDENCE_ROWS_PER_ACCOUNT("ranking.evidence_rows_per_account");
+
+        final String key;
+
+        Histogram(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+    private static final Log2Histogram[] HISTOGRAMS = new Log2Histogram[Histogram.values().length];
+    private static final Map<String, StageTotals> STAGES = new LinkedHashMap<>();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+    private static volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+    private static volatile boolean recording = true;
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) COUNTERS[i] = new LongAdder();
+        for (int i = 0; i < HISTOGRAMS.length; i++) HISTOGRAMS[i] = new Log2Histogram();
+    }
+
+    private PipelineMetrics() {
+    }
+
+    /** Uma observação amostrada a cada {@code rate} contas; 0 desliga histogramas e eventos por conta. */
+    static void setSampleRate(int rate) {
+        sampleRate = Math.max(0, rate);
+    }
+
+    static int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Desligado, contadores, histogramas e etapas ignoram o que chega; as
+     * etapas continuam devolvendo o tempo medido. Serve para passadas extras
+     * que não devem ser contadas duas vezes.
+     */
+    static void setRecording(boolean on) {
+        recording = on;
+    }
+
+    static void add(Counter counter, long delta) {
+        if (delta != 0 && recording) COUNTERS[counter.ordinal()].add(delta);
+    }
+
+    static long get(Counter counter) {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    /** Registra uma observação já escolhida por um {@link Sampler}. */
+    static void sample(Histogram histogram, int account, long value) {
+        if (!recording) return;
+        HISTOGRAMS[histogram.ordinal()].record(value);
+        AccountSample event = new AccountSample();
+        if (event.shouldCommit()) {
+            event.metric = histogram.key;
+            event.account = account;
+            event.value = value;
+            event.commit();
+        }
+    }
+
+    /** Zera tudo no início de uma análise. */
+    static void reset() {
+        for (LongAdder c : COUNTERS) c.reset();
+        for (Log2Histogram h : HISTOGRAMS) h.reset();
+        synchronized (STAGES) {
+            STAGES.clear();
+        }
+    }
+
+    static Stage begin(String name) {
+        return new Stage(name);
+    }
+
+    /**
+     * Decide quais observações entram nos histogramas. Cada thread usa o seu;
+     * o primeiro ponto de amostragem é sorteado para não alinhar com a ordem das contas.
+     */
+    static final class Sampler {
+        private final int rate = sampleRate;
+        private int left = rate == 0 ? Integer.MAX_VALUE : 1 + ThreadLocalRandom.current().nextInt(rate);
+
+        boolean sample() {
+            if (--left > 0) return false;
+            left = rate == 0 ? Integer.MAX_VALUE : rate;
+            return rate != 0;
+        }
+    }
+
+    /**
+     * Uma execução de etapa, aberta por {@link #begin} e fechada por {@link #end}
+     * na mesma thread. Etapas com o mesmo nome são somadas.
+     */
+    static final class Stage {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final long allocatedAtStart = allocatedBytes();
+        private final long gcMillisAtStart = gcMillis();
+        private final long gcCountAtStart = gcCount();
+        private final StageEvent event = new StageEvent();
+
+        private Stage(String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        /** Fecha a etapa e devolve o tempo de parede em nanossegundos. */
+        long end() {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocatedAtStart < 0 ? -1 : Math.max(0, allocatedBytes() - allocatedAtStart);
+            long gcMs = gcMillis() - gcMillisAtStart;
+            long gcN = gcCount() - gcCountAtStart;
+            if (!recording) return nanos;
+            synchronized (STAGES) {
+                STAGES.computeIfAbsent(name, k -> new StageTotals()).add(nanos, allocated, gcMs, gcN);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = name;
+                event.allocatedBytes = allocated;
+                event.gcTime = gcMs;
+                event.gcCount = gcN;
+                event.commit();
+            }
+            return nanos;
+        }
+    }
+
+    private static final class StageTotals {
+        long calls, nanos, allocated, gcMillis, gcCount;
+
+        void add(long n, long bytes, long gcMs, long gcN) {
+            calls++;
+            nanos += n;
+            allocated = bytes < 0 || allocated < 0 ? -1 : allocated + bytes;
+            gcMillis += gcMs;
+            gcCount += gcN;
+        }
+    }
+
+    /**
+     * Histograma em baldes de potência de 2: o balde b guarda valores em
+     * [2^(b-1), 2^b). Os percentis saem como o limite superior do balde.
+     */
+    private static final class Log2Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+            count.increment();
+            sum.add(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        void reset() {
+            for (int b = 0; b < buckets.length(); b++) buckets.set(b, 0);
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        long percentile(double q) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n), seen = 0;
+            for (int b = 0; b < buckets.length(); b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) return Math.min(max.get(), b == 0 ? 0 : (1L << b) - 1);
+            }
+            return max.get();
+        }
+    }
+
+    /**
+     * Grava contadores, etapas e histogramas em CSV (Kind,Name,Field,Value) e
+     * publica os contadores como eventos JFR.
+     */
+    static void write(String fileName) throws IOException {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
+            pw.println("Kind,Name,Field,Value");
+            pw.println("config,sample_rate,value," + sampleRate);
+            for (Counter c : Counter.values()) {
+                long value = get(c);
+                pw.println("counter," + c.key + ",total," + value);
+                CounterSnapshot event = new CounterSnapshot();
+                if (event.shouldCommit()) {
+                    event.counter = c.key;
+                    event.value = value;
+                    event.commit();
+                }
+            }
+            List<Map.Entry<String, StageTotals>> stages;
+            synchronized (STAGES) {
+                stages = new ArrayList<>(STAGES.entrySet());
+            }
+            for (Map.Entry<String, StageTotals> e : stages) {
+                StageTotals s = e.getValue();
+                String prefix = "stage," + e.getKey() + ",";
+                pw.println(prefix + "calls," + s.calls);
+                pw.println(prefix + "wall_ms," + s.nanos / 1_000_000);
+                pw.println(prefix + "allocated_bytes," + s.allocated);
+                pw.println(prefix + "gc_ms," + s.gcMillis);
+                pw.println(prefix + "gc_count," + s.gcCount);
+            }
+            for (Histogram h : Histogram.values()) {
+                Log2Histogram hist = HISTOGRAMS[h.ordinal()];
+                long n = hist.count.sum();
+                String prefix = "histogram," + h.key + ",";
+                pw.println(prefix + "samples," + n);
+                pw.println(prefix + "mean," + String.format(Locale.ROOT, "%.2f", n == 0 ? 0.0 : (double) hist.sum.sum() / n));
+                pw.println(prefix + "p50," + hist.percentile(0.50));
+                pw.println(prefix + "p90," + hist.percentile(0.90));
+                pw.println(prefix + "p99," + hist.percentile(0.99));
+                pw.println(prefix + "max," + hist.max.get());
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) return threads;
+        }
+        return null;
+    }
+
+    /**
+     * Soma dos bytes alocados pelas threads vivas, ou -1 se a JVM não mede.
+     * Threads que terminam no meio de uma etapa levam a sua parte junto.
+     */
+    private static long allocatedBytes() {
+        if (THREADS == null) return -1;
+        long sum = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            if (bytes > 0) sum += bytes;
+        }
+        return sum;
+    }
+
+    private static long gcMillis() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) sum += Math.max(0, gc.getCollectionTime());
+        return sum;
+    }
+
+    private static long gcCount() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) sum += Math.max(0, gc.getCollectionCount());
+        return sum;
+    }
+
+    @Name("graphs_fraud_detection.Stage")
+    @Label("Etapa do pipeline")
+    @Category("Detecção de Fraudes")
+    static final class StageEvent extends Event {
+        @Label("Etapa")
+        String stage;
+        @Label("Bytes alocados")
+        @DataAmount
+        long allocatedBytes;
+        @Label("Tempo de GC")
+        @Timespan(Timespan.MILLISECONDS)
+        long gcTime;
+        @Label("Coletas de GC")
+        long gcCount;
+    }
+
+    @Name("graphs_fraud_detection.AccountSample")
+    @Label("Amostra por conta")
+    @Category("Detecção de Fraudes")
+    static final class AccountSample extends Event {
+        @Label("Métrica")
+        String metric;
+        @Label("Conta")
+        int account;
+        @Label("Valor")
+        long value;
+    }
+
+    @Name("graphs_fraud_detection.Counter")
+    @Label("Contador")
+    @Category("Detecção de Fraudes")
+    static final class CounterSnapshot extends Event {
+        @Label("Contador")
+        String counter;
+        @Label("Valor")
+        long value;
+    }
+}
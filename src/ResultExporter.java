@@ -0,0 +1,187 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportação dos resultados numa thread de escrita em segundo plano, para que
+ * o menu volte assim que a detecção termina. As exportações rodam em ordem,
+ * uma de cada vez, então duas análises seguidas do mesmo arquivo não disputam
+ * os mesmos arquivos de saída.
+ *
+ * O arquivo de evidências é NDJSON, um objeto por linha:
+ * <ul>
+ *   <li>{@code export}: cabeçalho com as contagens;</li>
+ *   <li>{@code transaction}: cada transação citada como evidência, uma única
+ *       vez, pelo índice de linha do dataset (ausente quando a análise foi
+ *       fora da memória e as colunas não estão em heap);</li>
+ *   <li>{@code evidence}: cada lista de evidências distinta, uma única vez
+ *       (a de uma comunidade é a mesma para todos os membros);</li>
+ *   <li>{@code suspicion}: contas na ordem do ranking, com os alertas
+ *       apontando para as listas pelo id.</li>
+ * </ul>
+ */
+final class ResultExporter implements AutoCloseable {
+    static final int BUFFER_BYTES = 1 << 20;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "result-exporter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * A thread de escrita é daemon e não segura a JVM; quem cria o exportador
+     * chama {@link #close()} ao sair, e o gancho de desligamento cobre o Ctrl-C.
+     */
+    ResultExporter() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "result-exporter-drain"));
+    }
+
+    /**
+     * Uma exportação; as exceções de E/S são relatadas pelo próprio exportador.
+     */
+    interface Job {
+        void write() throws IOException;
+    }
+
+    /** Enfileira a exportação e volta imediatamente. */
+    void submit(String description, Job job) {
+        writer.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                job.write();
+                System.out.println(">>> Exportação concluída: " + description + " ("
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+            } catch (IOException e) {
+                System.err.println("Erro na exportação de " + description + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Espera as exportações pendentes. */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            while (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(">>> Aguardando exportações pendentes...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Grava o ranking com as evidências. {@code store} pode ser null; nesse caso
+     * só os índices de linha são exportados.
+     */
+    static void writeEvidence(List<RiskRanker.Ranked> ranked, StringDictionary accounts, TransactionStore store,
+                              String fileName) throws IOException {
+        Map<int[], Integer> evidenceIds = new IdentityHashMap<>();
+        List<int[]> evidenceSets = new ArrayList<>();
+        for (RiskRanker.Ranked r : ranked) {
+            for (Suspicion s : r.alerts()) {
+                if (evidenceIds.putIfAbsent(s.evidence, evidenceSets.size()) == null) evidenceSets.add(s.evidence);
+            }
+        }
+        BitSet referenced = new BitSet();
+        for (int[] evidence : evidenceSets) {
+            for (int row : evidence) referenced.set(row);
+        }
+
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), BUFFER_BYTES)) {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("{\"type\":\"export\",\"suspicions\":").append(ranked.size())
+                .append(",\"transactions\":").append(store == null ? 0 : referenced.cardinality())
+                .append(",\"evidenceSets\":").append(evidenceSets.size()).append("}\n");
+            out.append(sb);
+
+            if (store != null) {
+                for (int row = referenced.nextSetBit(0); row >= 0; row = referenced.nextSetBit(row + 1)) {
+                    sb.setLength(0);
+                    sb.append("{\"type\":\"transaction\",\"row\":").append(row)
+                        .append(",\"timestamp\":\"").append(store.timestampOf(row)).append('"');
+                    sb.append(",\"fromBank\":");
+                    appendString(sb, store.banks.get(store.fromBank[row]));
+                    sb.append(",\"from\":");
+                    appendString(sb, store.accountId(store.origin[row]));
+                    sb.append(",\"toBank\":");
+                    appendString(sb, store.banks.get(store.toBank[row]));
+                    sb.append(",\"to\":");
+                    appendString(sb, store.accountId(store.destination[row]));
+                    sb.append(",\"amount\":").append(store.amount[row]);
+                    sb.append(",\"currency\":");
+                    appendString(sb, store.currencies.get(store.currency[row]));
+                    sb.append(",\"paymentFormat\":");
+                    appendString(sb, store.paymentFormats.get(store.paymentFormat[row]));
+                    sb.append(",\"laundering\":").append(store.laundering[row]).append("}\n");
+                    out.append(sb);
+                }
+            }
+
+            for (int id = 0; id < evidenceSets.size(); id++) {
+                sb.setLength(0);
+                sb.append("{\"type\":\"evidence\",\"id\":").append(id).append(",\"rows\":[");
+                int[] evidence = evidenceSets.get(id);
+                for (int i = 0; i < evidence.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(evidence[i]);
+                    // listas grandes saem aos pedaços, sem montar a linha inteira em memória
+                    if (sb.length() >= BUFFER_BYTES / 2) {
+                        out.append(sb);
+                        sb.setLength(0);
+                    }
+                }
+                sb.append("]}\n");
+                out.append(sb);
+            }
+
+            int rank = 0;
+            for (RiskRanker.Ranked r : ranked) {
+                sb.setLength(0);
+                sb.append("{\"type\":\"suspicion\",\"rank\":").append(++rank).append(",\"account\":");
+                appendString(sb, accounts.get(r.account));
+                sb.append(",\"score\":").append(r.score).append(",\"reason\":");
+                appendString(sb, r.reason());
+                sb.append(",\"evidenceCount\":").append(r.evidenceCount).append(",\"alerts\":[");
+                boolean first = true;
+                for (Suspicion s : r.alerts()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    sb.append("{\"reason\":");
+                    appendString(sb, s.reason);
+                    sb.append(",\"score\":").append(s.score).append(",\"evidence\":").append(evidenceIds.get(s.evidence)).append('}');
+                }
+                sb.append("]}\n");
+                out.append(sb);
+            }
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
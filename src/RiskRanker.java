@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Une os alertas por conta e ordena pelo score somado.
+ *
+ * O acúmulo usa só arrays primitivos indexados pela conta: score, total de
+ * evidências, contagem de cada motivo e uma lista encadeada com os índices dos
+ * alertas da conta. A evidência não é copiada durante a união; cada alerta é
+ * guardado por referência (a lista da comunidade continua compartilhada).
+ */
+class RiskRanker {
+    /**
+     * Conta ranqueada. Os motivos saem agrupados, na ordem em que cada motivo
+     * apareceu pela primeira vez nos alertas.
+     */
+    static final class Ranked {
+        final int account;
+        final int score;
+        final int evidenceCount;
+        private final String reason;
+        private final List<Suspicion> alerts;
+        private final int[] next;
+        private final int head;
+
+        private Ranked(int account, int score, int evidenceCount, String reason,
+                       List<Suspicion> alerts, int[] next, int head) {
+            this.account = account;
+            this.score = score;
+            this.evidenceCount = evidenceCount;
+            this.reason = reason;
+            this.alerts = alerts;
+            this.next = next;
+            this.head = head;
+        }
+
+        String reason() {
+            return reason;
+        }
+
+        /** Alertas da conta, na ordem de chegada, com a evidência por referência. */
+        List<Suspicion> alerts() {
+            List<Suspicion> res = new ArrayList<>();
+            for (int a = head; a >= 0; a = next[a]) res.add(alerts.get(a));
+            return res;
+        }
+
+        String format(StringDictionary accounts) {
+            return String.format("Conta: %s | Motivo: %s | Score: %d | Evidências: %d transações",
+                accounts.get(account), reason, score, evidenceCount);
+        }
+    }
+
+    public List<Ranked> rank(List<Suspicion> alerts) {
+        return rank(alerts, 0);
+    }
+
+    /**
+     * Ranqueia os alertas; com {@code topK > 0} mantém só as topK contas de
+     * maior score num heap limitado, sem ordenar as demais.
+     */
+    public List<Ranked> rank(List<Suspicion> alerts, int topK) {
+        Map<String, Integer> reasonIds = new HashMap<>();
+        List<String> reasons = new ArrayList<>();
+        int[] reasonOf = new int[alerts.size()];
+        int accounts = 0;
+        for (int i = 0; i < alerts.size(); i++) {
+            Suspicion s = alerts.get(i);
+            Integer id = reasonIds.get(s.reason);
+            if (id == null) {
+                id = reasons.size();
+                reasonIds.put(s.reason, id);
+                reasons.add(s.reason);
+            }
+            reasonOf[i] = id;
+            accounts = Math.max(accounts, s.account + 1);
+        }
+
+        int r = reasons.size();
+        int[] score = new int[accounts];
+        int[] evidenceCount = new int[accounts];
+        int[] reasonCount = new int[accounts * r];
+        int[] head = new int[accounts], tail = new int[accounts];
+        int[] next = new int[alerts.size()];
+        Arrays.fill(head, -1);
+        int[] touched = new int[Math.min(accounts, alerts.size())];
+        int touchedCount = 0;
+        for (int i = 0; i < alerts.size(); i++) {
+            Suspicion s = alerts.get(i);
+            int acc = s.account;
+            if (head[acc] < 0) {
+                head[acc] = i;
+                touched[touchedCount++] = acc;
+            } else {
+                next[tail[acc]] = i;
+            }
+            tail[acc] = i;
+            next[i] = -1;
+            score[acc] += s.score;
+            evidenceCount[acc] += s.evidence.length;
+            reasonCount[acc * r + reasonOf[i]]++;
+        }
+
+        int[] order;
+        if (topK > 0 && topK < touchedCount) {
+            order = topK(touched, touchedCount, score, topK);
+        } else {
+            order = sortByScore(touched, touchedCount, score);
+        }
+
+        List<Ranked> list = new ArrayList<>(order.length);
+        StringBuilder sb = new StringBuilder();
+        PipelineMetrics.Sampler sampler = new PipelineMetrics.Sampler();
+        for (int acc : order) {
+            if (sampler.sample()) PipelineMetrics.sample(PipelineMetrics.Histogram.EVIDENCE_ROWS_PER_ACCOUNT, acc, evidenceCount[acc]);
+            sb.setLength(0);
+            for (int k = 0; k < r; k++) {
+                for (int c = reasonCount[acc * r + k]; c > 0; c--) {
+                    if (sb.length() > 0) sb.append("; ");
+                    sb.append(reasons.get(k));
+                }
+            }
+            list.add(new Ranked(acc, score[acc], evidenceCount[acc], sb.toString(), alerts, next, head[acc]));
+        }
+        return list;
+    }
+
+    /** Score decrescente; empates pela conta, para uma ordem estável. */
+    private static long key(int acc, int[] score) {
+        return ((long) -score[acc] << 32) | acc;
+    }
+
+    private static int[] sortByScore(int[] accounts, int count, int[] score) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) keys[i] = key(accounts[i], score);
+        Arrays.sort(keys);
+        int[] res = new int[count];
+        for (int i = 0; i < count; i++) res[i] = (int) keys[i];
+        return res;
+    }
+
+    /** Heap de máximo sobre a chave: a raiz é a pior conta entre as k mantidas. */
+    private static int[] topK(int[] accounts, int count, int[] score, int k) {
+        long[] heap = new long[k];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long key = key(accounts[i], score);
+            if (size < k) {
+                int j = size++;
+                while (j > 0 && heap[(j - 1) / 2] < key) {
+                    heap[j] = heap[(j - 1) / 2];
+                    j = (j - 1) / 2;
+                }
+                heap[j] = key;
+            } else if (key < heap[0]) {
+                int j = 0;
+                while (true) {
+                    int c = 2 * j + 1;
+                    if (c >= k) break;
+                    if (c + 1 < k && heap[c + 1] > heap[c]) c++;
+                    if (heap[c] <= key) break;
+                    heap[j] = heap[c];
+                    j = c;
+                }
+                heap[j] = key;
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        int[] res = new int[size];
+        for (int i = 0; i < size; i++) res[i] = (int) heap[i];
+        return res;
+    }
+}
@@ -0,0 +1,430 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Triagem das contas com sketches de memória fixa, antes dos detectores exatos.
+ *
+ * Uma passada pelas transações alimenta três estruturas: um count-min das
+ * saídas pequenas de cada conta (SmurfingDetector só alerta contas com pelo
+ * menos minTx delas), um count-min e um rastreador de heavy hitters
+ * (Space-Saving) do volume enviado (FlowChecker só alerta saldo negativo acima
+ * do limite, e o saldo nunca passa do volume enviado) e um count-min de
+ * contagens distintas das contrapartes (uma conta com menos de minDegree
+ * vizinhos não entra no k-core). As três estruturas só superestimam, então
+ * nenhuma regra descarta uma conta que o detector exato alertaria; epsilon e
+ * delta controlam só quanto a triagem reduz.
+ *
+ * Com largura e/epsilon e profundidade ln(1/delta), o erro de cada contagem fica
+ * abaixo de epsilon vezes o total com probabilidade 1 - delta. A largura é
+ * limitada a e vezes o número de linhas: daí em diante o erro das contagens já
+ * fica abaixo de uma transação, e só a memória cresceria. O epsilon efetivo,
+ * e/largura, vai no resultado. Só as estruturas das regras ligadas são
+ * alocadas. Os detectores exatos recebem apenas as transações com alguma ponta
+ * candidata.
+ */
+final class SketchPrescreen {
+    private final int depth;
+    private final int maxWidth;
+    private final int heavyHitters;
+
+    SketchPrescreen(double epsilon, double delta, int heavyHitters) {
+        this.depth = Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+        this.maxWidth = (int) Math.min(1 << 26, Math.ceil(Math.E / epsilon));
+        this.heavyHitters = Math.max(1, heavyHitters);
+    }
+
+    /**
+     * Limiares dos detectores selecionados; um limiar 0 desliga a regra.
+     */
+    static final class Criteria {
+        final double flowLimit;
+        final double smurfUnitLimit;
+        final int smurfMinTx;
+        final int minDegree;
+
+        Criteria(double flowLimit, double smurfUnitLimit, int smurfMinTx, int minDegree) {
+            this.flowLimit = flowLimit;
+            this.smurfUnitLimit = smurfUnitLimit;
+            this.smurfMinTx = smurfMinTx;
+            this.minDegree = minDegree;
+        }
+    }
+
+    /**
+     * Contas candidatas e o store reduzido às transações com alguma ponta candidata.
+     */
+    static final class Result {
+        final TransactionStore store;
+        /** Linha original de cada linha do store reduzido (crescente). */
+        final int[] originalRow;
+        final boolean[] candidate;
+        final int accounts;
+        final int candidates;
+        final int flowCandidates, smurfCandidates, communityCandidates;
+        final long sketchBytes;
+        /** Epsilon efetivo, e/largura; maior que o pedido quando a largura foi limitada pelas linhas. */
+        final double epsilon;
+        final int depth;
+
+        Result(TransactionStore store, int[] originalRow, boolean[] candidate, int accounts, int candidates,
+               int flowCandidates, int smurfCandidates, int communityCandidates, long sketchBytes,
+               double epsilon, int depth) {
+            this.store = store;
+            this.originalRow = originalRow;
+            this.candidate = candidate;
+            this.accounts = accounts;
+            this.candidates = candidates;
+            this.flowCandidates = flowCandidates;
+            this.smurfCandidates = smurfCandidates;
+            this.communityCandidates = communityCandidates;
+            this.sketchBytes = sketchBytes;
+            this.epsilon = epsilon;
+            this.depth = depth;
+        }
+
+        /** Traduz a evidência dos alertas para as linhas do store completo. */
+        List<Suspicion> toOriginal(List<Suspicion> alerts) {
+            Map<int[], int[]> translated = new IdentityHashMap<>();
+            List<Suspicion> res = new ArrayList<>(alerts.size());
+            for (Suspicion s : alerts) {
+                res.add(new Suspicion(s.account, s.reason, s.score, translated.computeIfAbsent(s.evidence, this::toOriginal)));
+            }
+            return res;
+        }
+
+        List<CommunityDetector.Community> toOriginalCommunities(List<CommunityDetector.Community> communities) {
+            List<CommunityDetector.Community> res = new ArrayList<>(communities.size());
+            for (CommunityDetector.Community c : communities) {
+                res.add(new CommunityDetector.Community(c.id, c.k, c.accounts, toOriginal(c.evidence), c.edges));
+            }
+            return res;
+        }
+
+        private int[] toOriginal(int[] rows) {
+            int[] res = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) res[i] = originalRow[rows[i]];
+            return res;
+        }
+    }
+
+    Result screen(TransactionStore store, Criteria criteria) {
+        int n = store.accountCount();
+        int width = (int) Math.max(1, Math.min(maxWidth, Math.ceil(Math.E * store.size)));
+        boolean flow = criteria.flowLimit > 0, smurf = criteria.smurfMinTx > 0, community = criteria.minDegree > 0;
+        CountMin smallOut = smurf ? new CountMin(depth, width, 1) : null;
+        CountMin volumeOut = flow ? new CountMin(depth, width, 2) : null;
+        SpaceSaving volumeLeaders = flow ? new SpaceSaving(heavyHitters) : null;
+        DistinctCountMin counterparties = community ? new DistinctCountMin(depth, width, criteria.minDegree, 3) : null;
+        for (int row = 0; row < store.size; row++) {
+            int o = store.origin[row], d = store.destination[row];
+            double amt = store.amount[row];
+            if (smurf && amt <= criteria.smurfUnitLimit) smallOut.add(o, 1);
+            if (flow) {
+                volumeOut.add(o, amt);
+                volumeLeaders.add(o, amt);
+            }
+            if (community) {
+                // o k-core conta o auto-laço como um vizinho, igual ao TransactionGraph
+                counterparties.add(o, d);
+                if (o != d) counterparties.add(d, o);
+            }
+        }
+
+        boolean[] candidate = new boolean[n];
+        int candidates = 0, flowCandidates = 0, smurfCandidates = 0, communityCandidates = 0;
+        for (int acc = 0; acc < n; acc++) {
+            boolean keep = false;
+            if (flow && Math.min(volumeOut.estimate(acc), volumeLeaders.upperBound(acc)) > criteria.flowLimit) {
+                flowCandidates++;
+                keep = true;
+            }
+            if (smurf && smallOut.estimate(acc) >= criteria.smurfMinTx) {
+                smurfCandidates++;
+                keep = true;
+            }
+            if (community && counterparties.estimate(acc) >= criteria.minDegree) {
+                communityCandidates++;
+                keep = true;
+            }
+            candidate[acc] = keep;
+            if (keep) candidates++;
+        }
+
+        int kept = 0;
+        for (int row = 0; row < store.size; row++) {
+            if (candidate[store.origin[row]] || candidate[store.destination[row]]) kept++;
+        }
+        int[] originalRow = new int[kept];
+        kept = 0;
+        for (int row = 0; row < store.size; row++) {
+            if (candidate[store.origin[row]] || candidate[store.destination[row]]) originalRow[kept++] = row;
+        }
+        long sketchBytes = (smurf ? smallOut.bytes() : 0) + (flow ? volumeOut.bytes() + volumeLeaders.bytes() : 0)
+            + (community ? counterparties.bytes() : 0);
+        return new Result(filter(store, originalRow), originalRow, candidate, n, candidates,
+            flowCandidates, smurfCandidates, communityCandidates, sketchBytes, Math.E / width, depth);
+    }
+
+    /** Store com as linhas escolhidas, na mesma ordem, e os mesmos dicionários e IDs de conta. */
+    private static TransactionStore filter(TransactionStore store, int[] rows) {
+        int m = rows.length;
+        int[] origin = new int[m], destination = new int[m], timestamp = new int[m], fromBank = new int[m], toBank = new int[m];
+        double[] amount = new double[m];
+        short[] currency = new short[m], paymentFormat = new short[m];
+        byte[] laundering = new byte[m];
+        for (int i = 0; i < m; i++) {
+            int r = rows[i];
+            origin[i] = store.origin[r];
+            destination[i] = store.destination[r];
+            amount[i] = store.amount[r];
+            timestamp[i] = store.timestamp[r];
+            fromBank[i] = store.fromBank[r];
+            toBank[i] = store.toBank[r];
+            currency[i] = store.currency[r];
+            paymentFormat[i] = store.paymentFormat[r];
+            laundering[i] = store.laundering[r];
+        }
+        return new TransactionStore(store.accounts, store.banks, store.currencies, store.paymentFormats, m,
+            origin, destination, amount, timestamp, fromBank, toBank, currency, paymentFormat, laundering);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int cell(int row, int key, int width, int salt) {
+        long h = mix(((long) salt << 48) ^ ((long) row << 32) ^ (key & 0xFFFFFFFFL));
+        return (int) ((h >>> 1) % width);
+    }
+
+    /**
+     * Count-min com atualização conservadora: só as células no mínimo sobem,
+     * o que reduz bastante o erro sem perder a garantia de nunca subestimar.
+     */
+    private static final class CountMin {
+        private final double[][] cells;
+        private final int width, salt;
+        private final int[] slot;
+
+        CountMin(int depth, int width, int salt) {
+            this.cells = new double[depth][width];
+            this.width = width;
+            this.salt = salt;
+            this.slot = new int[depth];
+        }
+
+        void add(int key, double weight) {
+            double min = Double.MAX_VALUE;
+            for (int r = 0; r < cells.length; r++) {
+                slot[r] = cell(r, key, width, salt);
+                min = Math.min(min, cells[r][slot[r]]);
+            }
+            double target = min + weight;
+            for (int r = 0; r < cells.length; r++) {
+                if (cells[r][slot[r]] < target) cells[r][slot[r]] = target;
+            }
+        }
+
+        double estimate(int key) {
+            double min = Double.MAX_VALUE;
+            for (int r = 0; r < cells.length; r++) min = Math.min(min, cells[r][cell(r, key, width, salt)]);
+            return min;
+        }
+
+        long bytes() {
+            return (long) cells.length * width * Double.BYTES;
+        }
+    }
+
+    /**
+     * Space-Saving ponderado: k contadores num heap de mínimo. Uma conta
+     * monitorada tem contagem superestimada; uma não monitorada tem no máximo o
+     * menor contador.
+     */
+    private static final class SpaceSaving {
+        private final int[] key;
+        private final double[] count;
+        private final IntIntMap position;
+        private int size;
+
+        SpaceSaving(int capacity) {
+            key = new int[capacity];
+            count = new double[capacity];
+            position = new IntIntMap(capacity);
+        }
+
+        void add(int k, double weight) {
+            int p = position.get(k);
+            if (p < 0) {
+                if (size < key.length) {
+                    p = size++;
+                    key[p] = k;
+                    count[p] = 0;
+                    position.put(k, p);
+                    siftUp(p);
+                    p = position.get(k);
+                } else {
+                    // substitui o menor contador, que passa a ser o erro da nova conta
+                    position.remove(key[0]);
+                    key[0] = k;
+                    position.put(k, 0);
+                    p = 0;
+                }
+            }
+            count[p] += weight;
+            siftDown(p);
+        }
+
+        double upperBound(int k) {
+            int p = position.get(k);
+            if (p >= 0) return count[p];
+            return size < key.length ? 0 : count[0];
+        }
+
+        private void siftUp(int p) {
+            while (p > 0) {
+                int parent = (p - 1) / 2;
+                if (count[parent] <= count[p]) break;
+                swap(p, parent);
+                p = parent;
+            }
+        }
+
+        private void siftDown(int p) {
+            while (true) {
+                int c = 2 * p + 1;
+                if (c >= size) break;
+                if (c + 1 < size && count[c + 1] < count[c]) c++;
+                if (count[p] <= count[c]) break;
+                swap(p, c);
+                p = c;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int ka = key[a];
+            double ca = count[a];
+            key[a] = key[b];
+            count[a] = count[b];
+            key[b] = ka;
+            count[b] = ca;
+            position.put(key[a], a);
+            position.put(key[b], b);
+        }
+
+        long bytes() {
+            return (long) key.length * (Integer.BYTES + Double.BYTES) + position.bytes();
+        }
+    }
+
+    /**
+     * Mapa int -> int de endereçamento aberto com remoção por deslocamento
+     * (sem lápides), para as posições do heap do Space-Saving.
+     */
+    private static final class IntIntMap {
+        private final int[] keys;
+        private final int[] values;
+        private final int mask;
+
+        IntIntMap(int capacity) {
+            int cap = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+            keys = new int[cap];
+            values = new int[cap];
+            mask = cap - 1;
+            java.util.Arrays.fill(keys, -1);
+        }
+
+        private int slot(int k) {
+            return (int) mix(k) & mask;
+        }
+
+        int get(int k) {
+            for (int i = slot(k); keys[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == k) return values[i];
+            }
+            return -1;
+        }
+
+        void put(int k, int v) {
+            int i = slot(k);
+            while (keys[i] != -1 && keys[i] != k) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = v;
+        }
+
+        void remove(int k) {
+            int i = slot(k);
+            while (keys[i] != k) {
+                if (keys[i] == -1) return;
+                i = (i + 1) & mask;
+            }
+            keys[i] = -1;
+            for (int j = (i + 1) & mask; keys[j] != -1; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                // move a entrada j para a lacuna i se i está entre a posição natural e j
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    keys[j] = -1;
+                    i = j;
+                }
+            }
+        }
+
+        long bytes() {
+            return (long) keys.length * 2 * Integer.BYTES;
+        }
+    }
+
+    /**
+     * Count-min de contagens distintas limitadas: cada célula guarda até limit
+     * contrapartes distintas, exatas, de todas as contas que caem nela (o modo
+     * esparso do HyperLogLog++ sem a passagem para registradores, que a regra
+     * nunca precisa: ela só pergunta se há pelo menos limit). Colisões só
+     * juntam contrapartes, então a estimativa nunca fica abaixo de
+     * min(grau, limit).
+     */
+    private static final class DistinctCountMin {
+        private final int[][] items;
+        private final int width, limit, salt;
+
+        DistinctCountMin(int depth, int width, int limit, int salt) {
+            this.limit = Math.max(1, limit);
+            this.items = new int[depth][Math.multiplyExact(width, this.limit)];
+            for (int[] row : items) java.util.Arrays.fill(row, -1);
+            this.width = width;
+            this.salt = salt;
+        }
+
+        void add(int key, int item) {
+            for (int r = 0; r < items.length; r++) {
+                int from = cell(r, key, width, salt) * limit;
+                for (int i = from; i < from + limit; i++) {
+                    if (items[r][i] == item) break;
+                    if (items[r][i] == -1) {
+                        items[r][i] = item;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int estimate(int key) {
+            int min = limit;
+            for (int r = 0; r < items.length; r++) {
+                int from = cell(r, key, width, salt) * limit, n = 0;
+                while (n < limit && items[r][from + n] != -1) n++;
+                min = Math.min(min, n);
+            }
+            return min;
+        }
+
+        long bytes() {
+            return (long) items.length * items[0].length * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Detecta smurfing: rajadas de pelo menos minTx transações de até unitLimit
+ * saindo da mesma conta dentro de windowMinutes. Uma janela deslizante com dois
+ * ponteiros percorre as saídas (já ordenadas por tempo) em O(k) por conta;
+ * janelas qualificadas que se sobrepõem formam uma única rajada maximal e cada
+ * rajada gera um alerta.
+*/
+class SmurfingDetector {
+    private final long windowMinutes; private final double unitLimit; private final int minTx;
+    public SmurfingDetector(long w, double u, int m) { windowMinutes = w; unitLimit = u; minTx = m; }
+
+    public List<Suspicion> detect(TransactionGraph graph) {
+        List<Suspicion> results = new ArrayList<>();
+        PipelineMetrics.Sampler sampler = new PipelineMetrics.Sampler();
+        int[] extent = new int[maxOutDegree(graph)];
+        long comparisons = 0;
+        for (int acc = 0; acc < graph.accountCount; acc++) {
+            final int account = acc, base = graph.outStart[acc];
+            long c = windowExtents(graph, acc, windowMinutes, unitLimit, extent);
+            forEachBurst(extent, graph.outDegree(acc), minTx, (from, to) ->
+                results.add(new Suspicion(account, "Smurfing detectado", 2, Arrays.copyOfRange(graph.outRows, base + from, base + to))));
+            comparisons += c;
+            if (c > 0 && sampler.sample()) PipelineMetrics.sample(PipelineMetrics.Histogram.SMURF_COMPARISONS_PER_ACCOUNT, acc, c);
+        }
+        PipelineMetrics.add(PipelineMetrics.Counter.SMURF_WINDOW_COMPARISONS, comparisons);
+        return results;
+    }
+
+    /**
+     * Recebe cada rajada como o intervalo [from, to) das saídas da conta,
+     * relativo a {@code graph.outStart[acc]}.
+     */
+    interface BurstSink {
+        void accept(int from, int to);
+    }
+
+    /**
+     * Para cada saída i da conta, guarda em {@code extent[i]} quantas saídas
+     * pequenas seguidas a partir de i cabem na janela de i (0 se i é grande).
+     * O ponteiro do fim da janela nunca recua, então cada saída é visitada no
+     * máximo duas vezes. Devolve quantas vezes uma saída foi comparada com a janela.
+     */
+    static long windowExtents(TransactionGraph graph, int acc, long window, double limit, int[] extent) {
+        TransactionStore txs = graph.store;
+        int[] rows = graph.outRows;
+        int start = graph.outStart[acc], end = graph.outStart[acc + 1];
+        int r = start;
+        long comparisons = 0;
+        for (int i = start; i < end; i++) {
+            if (txs.amount[rows[i]] > limit) {
+                extent[i - start] = 0;
+                r = i + 1;
+                continue;
+            }
+            if (r < i + 1) r = i + 1;
+            long first = txs.timestamp[rows[i]];
+            int from = r;
+            while (r < end && txs.amount[rows[r]] <= limit && txs.timestamp[rows[r]] - first <= window) r++;
+            comparisons += r - from + 1;
+            extent[i - start] = r - i;
+        }
+        return comparisons;
+    }
+
+    /**
+     * Enumera as rajadas maximais a partir das extensões de
+     * {@link #windowExtents}: as janelas com pelo menos min saídas que se
+     * sobrepõem formam uma única rajada. Como as extensões não dependem de min,
+     * todos os mínimos da varredura saem da mesma passada pelas transações.
+     */
+    static void forEachBurst(int[] extent, int n, int min, BurstSink sink) {
+        int burstFrom = -1, burstTo = -1;
+        for (int i = 0; i < n; i++) {
+            if (extent[i] == 0 || extent[i] < min) continue;
+            int r = i + extent[i];
+            if (burstFrom >= 0 && i < burstTo) {
+                burstTo = r;
+            } else {
+                if (burstFrom >= 0) sink.accept(burstFrom, burstTo);
+                burstFrom = i;
+                burstTo = r;
+            }
+        }
+        if (burstFrom >= 0) sink.accept(burstFrom, burstTo);
+    }
+
+    private static int maxOutDegree(TransactionGraph graph) {
+        int max = 0;
+        for (int acc = 0; acc < graph.accountCount; acc++) max = Math.max(max, graph.outDegree(acc));
+        return max;
+    }
+
+    /**
+     * Resultado agregado de uma combinação de parâmetros na varredura.
+     */
+    static final class SweepResult {
+        final long windowMinutes; final double unitLimit; final int minTx;
+        int flaggedAccounts;
+        int bursts;
+        long transactions;
+
+        SweepResult(long w, double u, int m) { windowMinutes = w; unitLimit = u; minTx = m; }
+    }
+
+    /**
+     * Avalia toda a grade (janela x limite unitário x mínimo de transações) em
+     * uma única passada pelas contas, em vez de rodar o pipeline por combinação.
+     * As extensões das janelas são calculadas uma vez por (janela, limite) e
+     * todos os mínimos saem delas.
+     */
+    static List<SweepResult> sweep(TransactionGraph graph, long[] windows, double[] limits, int[] mins) {
+        List<SweepResult> grid = new ArrayList<>();
+        for (long w : windows) for (double u : limits) for (int m : mins) grid.add(new SweepResult(w, u, m));
+        int[] extent = new int[maxOutDegree(graph)];
+        int[] burstsOfAccount = new int[1];
+        long[] transactionsOfAccount = new long[1];
+        BurstSink sink = (from, to) -> {
+            burstsOfAccount[0]++;
+            transactionsOfAccount[0] += to - from;
+        };
+        long comparisons = 0;
+        for (int acc = 0; acc < graph.accountCount; acc++) {
+            int n = graph.outDegree(acc);
+            if (n == 0) continue;
+            int cell = 0;
+            for (long w : windows) {
+                for (double u : limits) {
+                    comparisons += windowExtents(graph, acc, w, u, extent);
+                    for (int m : mins) {
+                        SweepResult r = grid.get(cell++);
+                        burstsOfAccount[0] = 0;
+                        transactionsOfAccount[0] = 0;
+                        forEachBurst(extent, n, m, sink);
+                        if (burstsOfAccount[0] > 0) {
+                            r.flaggedAccounts++;
+                            r.bursts += burstsOfAccount[0];
+                            r.transactions += transactionsOfAccount[0];
+                        }
+                    }
+                }
+            }
+        }
+        PipelineMetrics.add(PipelineMetrics.Counter.SMURF_WINDOW_COMPARISONS, comparisons);
+        return grid;
+    }
+}
@@ -0,0 +1,805 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de detecção incremental para feeds de transações ao vivo.
+ *
+ * Lê uma transação por vez (stdin ou arquivo que cresce) e mantém estado
+ * incremental para cada detector: saldos do FlowChecker, janelas de smurfing
+ * por origem, fronteiras de cadeias de layering limitadas à janela de tempo e
+ * o k-core do CommunityDetector mantido a cada aresta nova. Os alertas saem
+ * assim que um limite é cruzado.
+ *
+ * Eventos fora de ordem são reordenados por uma marca d'água de tempo de evento
+ * (maior timestamp visto menos o atraso permitido): um evento só é processado
+ * quando fica abaixo da marca, e eventos que já chegam abaixo dela são
+ * descartados como atrasados. Como os eventos são processados em ordem de
+ * tempo, as cadeias de layering só avançam no tempo.
+ *
+ * O estado por conta fica em arrays indexados pelo ID da conta, que crescem
+ * com o dicionário. Janelas de smurfing e cadeias de layering expiram com o
+ * tempo de evento. Os vizinhos de uma conta só são guardados enquanto ela
+ * está fora do k-core (o núcleo só cresce). O grafo fora do núcleo é
+ * (k-1)-degenerado e cada conta fora dele tem menos de k vizinhos no núcleo,
+ * então ficam guardadas menos de 2k arestas por conta, em média. Com um
+ * horizonte de arestas, as arestas fora do núcleo sem nova ocorrência dentro
+ * dele são esquecidas e só arestas recentes levam uma conta ao núcleo. O
+ * saldo e as marcas de alerta de cada conta vista nunca expiram: o saldo do
+ * FlowChecker é acumulado desde o início do feed.
+ */
+final class StreamingEngine {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
+    /** Máximo de cadeias parciais guardadas por conta; as mais antigas saem primeiro. */
+    private static final int MAX_FRONTIER_PER_ACCOUNT = 256;
+    /** A cada quantos eventos o estado expirado é varrido. */
+    private static final int EXPIRY_INTERVAL = 4096;
+    /** Máximo de contas visitadas pela busca local do k-core a cada aresta nova. */
+    private static final int MAX_CORE_CANDIDATES = 1 << 14;
+    /** Fração de eventos atrasados a partir da qual o descarte é avisado em stderr. */
+    private static final double LATE_WARNING_RATIO = 0.01;
+    /** Eventos vistos antes do primeiro aviso durante o feed. */
+    private static final int LATE_WARNING_MIN_EVENTS = 1000;
+
+    private final long smurfWindow; private final double smurfLimit; private final int smurfMinTx;
+    private final int layeringDepth; private final double layeringDelta; private final long layeringWindow;
+    private final int denseMinDegree;
+    private final long allowedLateness;
+    /** Minutos sem ocorrência depois dos quais uma aresta fora do núcleo é esquecida; 0 guarda todas. */
+    private final long edgeHorizon;
+    private long nextEdgeSweep = Long.MIN_VALUE;
+
+    private final StringDictionary accounts = new StringDictionary();
+    /** O mesmo parser da carga em lote: o feed aceita e recusa as mesmas linhas. */
+    private final CsvLoader.LineParser parser = new CsvLoader.LineParser();
+    private final PriorityQueue<Event> pending = new PriorityQueue<>();
+    private long maxEventTime = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long sequence;
+    /** Maior atraso visto em relação ao maior timestamp anterior: o --lateness que não descartaria nada. */
+    private long maxDisorder;
+    private boolean lateWarned;
+
+    // FlowChecker
+    private double[] balance = new double[1024];
+    private final BitSet flowFlagged = new BitSet();
+    // SmurfingDetector: as últimas smurfMinTx saídas pequenas consecutivas de cada origem
+    private SmurfWindow[] smurfWindows = new SmurfWindow[1024];
+    // LayeringDetector: cadeias parciais que terminam em cada conta
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ArrayDeque<Chain>[] frontiers = new ArrayDeque[1024];
+    private final BitSet layeringFlagged = new BitSet();
+    // CommunityDetector: vizinhos distintos das contas fora do núcleo, arestas já vistas e pertencimento ao k-core
+    private int[][] neighbours = new int[1024][];
+    private int[] degree = new int[1024];
+    private final EdgeSet edges = new EdgeSet();
+    private final BitSet inCore = new BitSet();
+    // busca local do k-core: marcas por época (visto, candidato), suporte e pilhas reaproveitadas
+    private int[] seen = new int[1024];
+    private int[] member = new int[1024];
+    private int[] support = new int[1024];
+    private int[] candidates = new int[64];
+    private int[] drop = new int[64];
+    private int epoch;
+    private long truncatedCoreSearches;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final AtomicBoolean summaryPrinted = new AtomicBoolean();
+    private long processed, late, rejected, skipped;
+    private final long[] alertCounts = new long[4];
+
+    StreamingEngine(long smurfWindow, double smurfLimit, int smurfMinTx,
+                    int layeringDepth, double layeringDelta, long layeringWindow,
+                    int denseMinDegree, long allowedLateness, long edgeHorizon) {
+        this.smurfWindow = smurfWindow; this.smurfLimit = smurfLimit; this.smurfMinTx = Math.max(1, smurfMinTx);
+        this.layeringDepth = Math.max(1, layeringDepth); this.layeringDelta = layeringDelta; this.layeringWindow = layeringWindow;
+        this.denseMinDegree = denseMinDegree;
+        this.allowedLateness = allowedLateness;
+        this.edgeHorizon = Math.max(0, edgeHorizon);
+    }
+
+    /**
+     * Transação já interpretada, com o número de sequência no feed.
+     */
+    private static final class Event implements Comparable<Event> {
+        final long seq; final int origin; final int destination; final double amount; final long time;
+        final long arrivalNanos;
+
+        Event(long seq, int origin, int destination, double amount, long time, long arrivalNanos) {
+            this.seq = seq; this.origin = origin; this.destination = destination;
+            this.amount = amount; this.time = time; this.arrivalNanos = arrivalNanos;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            int c = Long.compare(time, o.time);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final class SmurfWindow {
+        final long[] times; final long[] seqs;
+        int head, size;
+        long lastTime;
+        boolean burstOpen;
+
+        SmurfWindow(int capacity) {
+            times = new long[capacity];
+            seqs = new long[capacity];
+        }
+
+        void push(long time, long seq) {
+            int slot = (head + size) % times.length;
+            if (size == times.length) {
+                head = (head + 1) % times.length;
+            } else {
+                size++;
+            }
+            times[slot] = time;
+            seqs[slot] = seq;
+            lastTime = time;
+        }
+
+        long first() { return times[head]; }
+
+        long[] evidence() {
+            long[] res = new long[size];
+            for (int i = 0; i < size; i++) res[i] = seqs[(head + i) % seqs.length];
+            return res;
+        }
+    }
+
+    /**
+     * Cadeia parcial de layering: contas percorridas e eventos usados.
+     */
+    private static final class Chain {
+        final int origin; final long lastTime; final double lastAmount;
+        final int[] path; final long[] events;
+
+        Chain(int origin, long lastTime, double lastAmount, int[] path, long[] events) {
+            this.origin = origin; this.lastTime = lastTime; this.lastAmount = lastAmount;
+            this.path = path; this.events = events;
+        }
+
+        boolean visits(int account) {
+            for (int a : path) if (a == account) return true;
+            return false;
+        }
+    }
+
+    /**
+     * Consome o feed até o fim (ou indefinidamente, em modo follow) e imprime o resumo.
+     */
+    void run(Path file, boolean follow) throws IOException {
+        // o gancho só cobre o Ctrl-C (em modo follow, o único fim do feed); no fim normal o resumo sai daqui
+        Thread hook = new Thread(this::printSummary, "stream-summary");
+        Runtime.getRuntime().addShutdownHook(hook);
+        try (LineSource source = file == null ? new StdinSource() : follow ? new FollowSource(file) : new FileSource(file)) {
+            String line = source.next();
+            // a primeira linha é o cabeçalho, como no carregamento em lote
+            while ((line = source.next()) != null) {
+                accept(line, System.nanoTime());
+            }
+        }
+        flush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // desligamento já em curso: o gancho imprime
+        }
+        printSummary();
+    }
+
+    /** Sincronizado com o resumo: o gancho do Ctrl-C espera o evento em curso terminar. */
+    synchronized void accept(String line, long arrivalNanos) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        parser.reset(ByteBuffer.wrap(bytes));
+        if (parser.isSkipped(0, bytes.length)) {
+            skipped++;
+            return;
+        }
+        if (!parser.split(0, bytes.length)) {
+            rejected++;
+            return;
+        }
+        long time;
+        double amount;
+        try {
+            time = parser.parseTimestamp(0);
+            amount = parser.parseAmount(5);
+        } catch (Exception e) {
+            rejected++;
+            System.err.println("    Erro ao processar a linha: " + line + " -> " + e.getMessage());
+            return;
+        }
+        long seq = ++sequence;
+        if (maxEventTime != Long.MIN_VALUE) maxDisorder = Math.max(maxDisorder, maxEventTime - time);
+        if (time < watermark) {
+            late++;
+            if (!lateWarned && sequence >= LATE_WARNING_MIN_EVENTS && lateRatioHigh()) {
+                lateWarned = true;
+                printLateWarning("até agora ");
+            }
+            return;
+        }
+        int origin = accounts.intern(parser.text(parser.trimStart(2), parser.trimEnd(2)));
+        int destination = accounts.intern(parser.text(parser.trimStart(4), parser.trimEnd(4)));
+        Event ev = new Event(seq, origin, destination, amount, time, arrivalNanos);
+        pending.add(ev);
+        if (time > maxEventTime) {
+            maxEventTime = time;
+            watermark = maxEventTime - allowedLateness;
+        }
+        while (!pending.isEmpty() && pending.peek().time <= watermark) process(pending.poll());
+    }
+
+    /** Processa tudo o que ainda espera pela marca d'água (fim do feed). */
+    synchronized void flush() {
+        while (!pending.isEmpty()) process(pending.poll());
+    }
+
+    private void process(Event ev) {
+        long start = System.nanoTime();
+        ensureAccounts(Math.max(ev.origin, ev.destination) + 1);
+        updateFlow(ev);
+        updateSmurfing(ev);
+        updateLayering(ev);
+        updateCommunity(ev);
+        processed++;
+        if (processed % EXPIRY_INTERVAL == 0) expire(ev.time);
+        long end = System.nanoTime();
+        latency.record(end - start);
+        endToEnd.record(end - ev.arrivalNanos);
+    }
+
+    private void ensureAccounts(int n) {
+        if (n <= balance.length) return;
+        int capacity = Math.max(n, balance.length * 2);
+        balance = Arrays.copyOf(balance, capacity);
+        smurfWindows = Arrays.copyOf(smurfWindows, capacity);
+        frontiers = Arrays.copyOf(frontiers, capacity);
+        neighbours = Arrays.copyOf(neighbours, capacity);
+        degree = Arrays.copyOf(degree, capacity);
+        seen = Arrays.copyOf(seen, capacity);
+        member = Arrays.copyOf(member, capacity);
+        support = Arrays.copyOf(support, capacity);
+    }
+
+    private void updateFlow(Event ev) {
+        balance[ev.destination] += ev.amount;
+        balance[ev.origin] -= ev.amount;
+        if (balance[ev.origin] < -FlowChecker.LIMITE_SUSPEITO && !flowFlagged.get(ev.origin)) {
+            flowFlagged.set(ev.origin);
+            emit(0, ev, ev.origin, "Desequilíbrio de fluxo", new long[]{ev.seq});
+        }
+    }
+
+    /**
+     * Existe uma rajada quando smurfMinTx saídas pequenas consecutivas cabem na
+     * janela; basta guardar as últimas smurfMinTx. Uma saída grande interrompe
+     * a sequência, como no detector em lote.
+     */
+    private void updateSmurfing(Event ev) {
+        SmurfWindow w = smurfWindows[ev.origin];
+        if (ev.amount > smurfLimit) {
+            smurfWindows[ev.origin] = null;
+            return;
+        }
+        if (w == null) {
+            w = new SmurfWindow(smurfMinTx);
+            smurfWindows[ev.origin] = w;
+        }
+        w.push(ev.time, ev.seq);
+        boolean burst = w.size == smurfMinTx && ev.time - w.first() <= smurfWindow;
+        if (burst && !w.burstOpen) emit(1, ev, ev.origin, "Smurfing detectado", w.evidence());
+        w.burstOpen = burst;
+    }
+
+    private void updateLayering(Event ev) {
+        ArrayDeque<Chain> target = null;
+        ArrayDeque<Chain> atOrigin = frontiers[ev.origin];
+        if (atOrigin != null) {
+            for (Iterator<Chain> it = atOrigin.iterator(); it.hasNext(); ) {
+                Chain c = it.next();
+                if (ev.time - c.lastTime > layeringWindow) {
+                    it.remove();
+                    continue;
+                }
+                if (Math.abs(ev.amount - c.lastAmount) > layeringDelta || c.visits(ev.destination)) continue;
+                long[] events = Arrays.copyOf(c.events, c.events.length + 1);
+                events[c.events.length] = ev.seq;
+                if (events.length >= layeringDepth) {
+                    if (!layeringFlagged.get(c.origin)) {
+                        layeringFlagged.set(c.origin);
+                        emit(2, ev, c.origin, "Layering detectado", events);
+                    }
+                    continue;
+                }
+                int[] path = Arrays.copyOf(c.path, c.path.length + 1);
+                path[c.path.length] = ev.destination;
+                if (target == null) target = frontierOf(ev.destination);
+                addBounded(target, new Chain(c.origin, ev.time, ev.amount, path, events));
+            }
+            if (atOrigin.isEmpty() && frontiers[ev.origin] == atOrigin) frontiers[ev.origin] = null;
+        }
+        if (layeringDepth <= 1) {
+            if (!layeringFlagged.get(ev.origin)) {
+                layeringFlagged.set(ev.origin);
+                emit(2, ev, ev.origin, "Layering detectado", new long[]{ev.seq});
+            }
+            return;
+        }
+        if (target == null) target = frontierOf(ev.destination);
+        addBounded(target, new Chain(ev.origin, ev.time, ev.amount, new int[]{ev.origin, ev.destination}, new long[]{ev.seq}));
+    }
+
+    private ArrayDeque<Chain> frontierOf(int account) {
+        if (frontiers[account] == null) frontiers[account] = new ArrayDeque<>();
+        return frontiers[account];
+    }
+
+    private static void addBounded(ArrayDeque<Chain> frontier, Chain c) {
+        if (frontier.size() == MAX_FRONTIER_PER_ACCOUNT) frontier.pollFirst();
+        frontier.addLast(c);
+    }
+
+    /**
+     * Manutenção incremental do k-core para k = denseMinDegree. Só inserções:
+     * o núcleo só cresce, e o que entra por causa da aresta nova é conexo a uma
+     * das pontas por contas que também entram. Uma conta só pode entrar se tem
+     * pelo menos k vizinhos no núcleo ou com grau >= k (o potencial), então a
+     * busca parte das pontas e só atravessa contas fora do núcleo com grau e
+     * potencial >= k, até MAX_CORE_CANDIDATES; um peeling local entre núcleo e
+     * candidatos decide quem entra. Se a busca para no limite, o peeling sobre
+     * os candidatos já vistos ainda dá um k-core válido (só pode faltar conta).
+     */
+    private void updateCommunity(Event ev) {
+        int u = ev.origin, v = ev.destination;
+        if (inCore.get(u) && inCore.get(v)) return;
+        if (!edges.add(edgeKey(u, v), (int) ev.time)) return;
+        if (!inCore.get(u)) addNeighbour(u, v);
+        if (u != v && !inCore.get(v)) addNeighbour(v, u);
+
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(member, 0);
+            epoch = 1;
+        }
+        int found = 0;
+        for (int root = 0; root < 2; root++) {
+            int x = root == 0 ? u : v;
+            if (seen[x] == epoch) continue;
+            seen[x] = epoch;
+            if (mayJoin(x)) {
+                member[x] = epoch;
+                candidates[found++] = x;
+            }
+        }
+        if (found == 0) return;
+        for (int head = 0; head < found; head++) {
+            int x = candidates[head];
+            for (int i = 0, end = degree[x]; i < end; i++) {
+                int y = neighbours[x][i];
+                if (seen[y] == epoch) continue;
+                seen[y] = epoch;
+                if (!mayJoin(y)) continue;
+                if (found == MAX_CORE_CANDIDATES) {
+                    truncatedCoreSearches++;
+                    head = found;
+                    break;
+                }
+                if (found == candidates.length) candidates = Arrays.copyOf(candidates, found * 2);
+                member[y] = epoch;
+                candidates[found++] = y;
+            }
+        }
+
+        int drops = 0;
+        for (int j = 0; j < found; j++) {
+            int c = candidates[j], s = 0;
+            for (int i = 0, end = degree[c]; i < end; i++) {
+                int y = neighbours[c][i];
+                if (inCore.get(y) || member[y] == epoch) s++;
+            }
+            support[c] = s;
+            if (s < denseMinDegree) drops = push(drops, c);
+        }
+        while (drops > 0) {
+            int c = drop[--drops];
+            if (member[c] != epoch) continue;
+            member[c] = 0;
+            for (int i = 0, end = degree[c]; i < end; i++) {
+                int y = neighbours[c][i];
+                if (y != c && member[y] == epoch && --support[y] < denseMinDegree) drops = push(drops, y);
+            }
+        }
+        for (int j = 0; j < found; j++) {
+            int c = candidates[j];
+            if (member[c] != epoch) continue;
+            inCore.set(c);
+            emit(3, ev, c, "Comunidade densa", new long[]{ev.seq});
+        }
+        for (int j = 0; j < found; j++) {
+            if (member[candidates[j]] == epoch) release(candidates[j]);
+        }
+    }
+
+    /** Fora do núcleo, com grau e potencial >= k. */
+    private boolean mayJoin(int account) {
+        if (inCore.get(account) || degree[account] < denseMinDegree) return false;
+        int potential = 0;
+        for (int i = 0, end = degree[account]; i < end && potential < denseMinDegree; i++) {
+            int y = neighbours[account][i];
+            if (inCore.get(y) || degree[y] >= denseMinDegree) potential++;
+        }
+        return potential >= denseMinDegree;
+    }
+
+    private int push(int drops, int account) {
+        if (drops == drop.length) drop = Arrays.copyOf(drop, drops * 2);
+        drop[drops] = account;
+        return drops + 1;
+    }
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private void addNeighbour(int account, int neighbour) {
+        int[] list = neighbours[account];
+        if (list == null) {
+            list = neighbours[account] = new int[4];
+        } else if (degree[account] == list.length) {
+            list = neighbours[account] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[degree[account]++] = neighbour;
+    }
+
+    /**
+     * A conta entrou no núcleo e não sai mais: os vizinhos dela não são mais
+     * lidos, e uma aresta com as duas pontas no núcleo não precisa ser lembrada.
+     */
+    private void release(int account) {
+        int[] list = neighbours[account];
+        for (int i = 0; i < degree[account]; i++) {
+            if (inCore.get(list[i])) edges.remove(edgeKey(account, list[i]));
+        }
+        neighbours[account] = null;
+    }
+
+    /**
+     * Descarta janelas de smurfing e cadeias que nenhum evento futuro pode
+     * estender: os próximos eventos terão timestamp >= now.
+     */
+    private void expire(long now) {
+        for (int acc = 0, n = accounts.size(); acc < n && acc < smurfWindows.length; acc++) {
+            if (smurfWindows[acc] != null && now - smurfWindows[acc].lastTime > smurfWindow) smurfWindows[acc] = null;
+            ArrayDeque<Chain> frontier = frontiers[acc];
+            if (frontier == null) continue;
+            frontier.removeIf(c -> now - c.lastTime > layeringWindow);
+            if (frontier.isEmpty()) frontiers[acc] = null;
+        }
+        if (edgeHorizon > 0 && now >= nextEdgeSweep) {
+            expireEdges(now - edgeHorizon);
+            nextEdgeSweep = now + Math.max(1, edgeHorizon / 2);
+        }
+    }
+
+    /**
+     * Esquece as arestas fora do núcleo vistas pela última vez antes de cutoff.
+     * Percorre todas as arestas guardadas, então roda junto com a varredura
+     * periódica e no máximo uma vez a cada horizon/2 minutos de tempo de
+     * evento. O núcleo não muda.
+     */
+    private void expireEdges(long cutoff) {
+        for (int acc = 0, n = accounts.size(); acc < n && acc < neighbours.length; acc++) {
+            int[] list = neighbours[acc];
+            if (list == null) continue;
+            int kept = 0;
+            for (int i = 0, end = degree[acc]; i < end; i++) {
+                if (edges.time(edgeKey(acc, list[i])) >= cutoff) list[kept++] = list[i];
+            }
+            degree[acc] = kept;
+            if (kept == 0) neighbours[acc] = null;
+            else if (kept < list.length / 4) neighbours[acc] = Arrays.copyOf(list, Math.max(4, kept));
+        }
+        edges.retainSince(cutoff);
+    }
+
+    private static int live(Object[] perAccount) {
+        int n = 0;
+        for (Object o : perAccount) if (o != null) n++;
+        return n;
+    }
+
+    private void emit(int detector, Event ev, int account, String reason, long[] evidence) {
+        alertCounts[detector]++;
+        System.out.println(String.format("[ALERTA] %s | Conta: %s | Motivo: %s | Evidências (eventos): %s",
+            TransactionStore.toDateTime((int) ev.time).format(FORMATTER), accounts.get(account), reason, Arrays.toString(evidence)));
+    }
+
+    private boolean lateRatioHigh() {
+        return late > LATE_WARNING_RATIO * (processed + pending.size() + late);
+    }
+
+    private void printLateWarning(String soFar) {
+        System.err.println(String.format("ATENÇÃO: %d de %d eventos (%.1f%%) chegaram mais de %d minutos atrasados e foram descartados.",
+            late, processed + pending.size() + late, 100.0 * late / Math.max(1, processed + pending.size() + late), allowedLateness));
+        System.err.println("ATENÇÃO: o feed tem " + soFar + "eventos até " + maxDisorder + " minutos fora de ordem; para não descartar nenhum, use --lateness "
+            + maxDisorder + ".");
+    }
+
+    private synchronized void printSummary() {
+        if (!summaryPrinted.compareAndSet(false, true)) return;
+        System.out.println("\n--- RESUMO DO STREAMING ---");
+        System.out.println("Eventos processados: " + processed + " | atrasados descartados: " + late
+            + " | malformados: " + rejected + " | ignorados: " + skipped);
+        System.out.println("Maior desordem de tempo de evento: " + maxDisorder + " minutos (--lateness " + allowedLateness + ")");
+        if (lateRatioHigh()) printLateWarning("");
+        System.out.println("Alertas: fluxo " + alertCounts[0] + ", smurfing " + alertCounts[1]
+            + ", layering " + alertCounts[2] + ", comunidade " + alertCounts[3]);
+        System.out.println("Estado: " + accounts.size() + " contas, " + live(smurfWindows) + " janelas de smurfing, "
+            + live(frontiers) + " fronteiras de layering, " + inCore.cardinality() + " contas no k-core, "
+            + edges.size() + " arestas fora do núcleo ("
+            + (edgeHorizon > 0 ? "horizonte de " + edgeHorizon + " minutos)" : "sem horizonte: crescem com o grafo)"));
+        if (truncatedCoreSearches > 0) {
+            System.out.println("Buscas do k-core que pararam no limite de " + MAX_CORE_CANDIDATES + " contas: " + truncatedCoreSearches);
+        }
+        System.out.println(String.format("Latência por evento: p50 %.1f us | p90 %.1f us | p99 %.1f us | p99.9 %.1f us | máx %.1f us",
+            latency.percentile(50) / 1e3, latency.percentile(90) / 1e3, latency.percentile(99) / 1e3,
+            latency.percentile(99.9) / 1e3, latency.max() / 1e3));
+        System.out.println(String.format("Latência chegada-alerta (inclui espera pela marca d'água): p50 %.1f ms | p99 %.1f ms | máx %.1f ms",
+            endToEnd.percentile(50) / 1e6, endToEnd.percentile(99) / 1e6, endToEnd.max() / 1e6));
+    }
+
+    /**
+     * Arestas já vistas, como longs não negativos, com o minuto da última
+     * ocorrência. Endereçamento aberto e remoção por deslocamento (sem lápides).
+     */
+    private static final class EdgeSet {
+        private static final long EMPTY = -1;
+        private long[] keys = new long[1024];
+        private int[] times = new int[1024];
+        private int size;
+
+        EdgeSet() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private static int slot(long k, int mask) {
+            k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+            return (int) (k ^ (k >>> 33)) & mask;
+        }
+
+        /** Registra uma ocorrência em time; devolve false se a chave já estava no conjunto. */
+        boolean add(long k, int time) {
+            if (2 * (size + 1) > keys.length) rehash(keys.length * 2);
+            int mask = keys.length - 1;
+            int i = slot(k, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == k) {
+                    times[i] = Math.max(times[i], time);
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            times[i] = time;
+            size++;
+            return true;
+        }
+
+        /** Minuto da última ocorrência, ou Integer.MIN_VALUE se a chave não está no conjunto. */
+        int time(long k) {
+            int mask = keys.length - 1;
+            for (int i = slot(k, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == k) return times[i];
+            }
+            return Integer.MIN_VALUE;
+        }
+
+        void remove(long k) {
+            int mask = keys.length - 1;
+            int i = slot(k, mask);
+            while (keys[i] != k) {
+                if (keys[i] == EMPTY) return;
+                i = (i + 1) & mask;
+            }
+            keys[i] = EMPTY;
+            size--;
+            for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                // move a entrada j para a lacuna i se i está entre a posição natural e j
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    times[i] = times[j];
+                    keys[j] = EMPTY;
+                    i = j;
+                }
+            }
+        }
+
+        /** Remove as chaves vistas pela última vez antes de cutoff e encolhe a tabela. */
+        void retainSince(long cutoff) {
+            int live = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == EMPTY) continue;
+                if (times[i] < cutoff) keys[i] = EMPTY;
+                else live++;
+            }
+            int capacity = 1024;
+            while (capacity < 2 * live) capacity *= 2;
+            rehash(capacity);
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldTimes = times;
+            keys = new long[capacity];
+            times = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) if (oldKeys[i] != EMPTY) add(oldKeys[i], oldTimes[i]);
+        }
+    }
+
+    /**
+     * Histograma log-linear de latências: 16 sub-baldes por potência de dois,
+     * erro relativo abaixo de ~6% e memória fixa.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 4;
+        private final long[] counts = new long[64 << SUB_BITS];
+        private long total;
+        private long max;
+
+        void record(long nanos) {
+            long v = Math.max(0, nanos);
+            counts[index(v)]++;
+            total++;
+            max = Math.max(max, v);
+        }
+
+        private static int index(long v) {
+            if (v < (1L << SUB_BITS)) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        private static long lowerBound(int index) {
+            int exp = (index >>> SUB_BITS) + SUB_BITS - 1;
+            if (index < (1 << SUB_BITS)) return index;
+            int sub = index & ((1 << SUB_BITS) - 1);
+            return (1L << exp) + ((long) sub << (exp - SUB_BITS));
+        }
+
+        long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(p / 100.0 * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(max, lowerBound(i));
+            }
+            return max;
+        }
+
+        long max() {
+            return max;
+        }
+    }
+
+    /**
+     * Fonte de linhas do feed.
+     */
+    private interface LineSource extends AutoCloseable {
+        String next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class StdinSource implements LineSource {
+        private final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        public String next() throws IOException { return in.readLine(); }
+
+        public void close() { }
+    }
+
+    private static final class FileSource implements LineSource {
+        private final BufferedReader in;
+
+        FileSource(Path file) throws IOException { in = Files.newBufferedReader(file, StandardCharsets.UTF_8); }
+
+        public String next() throws IOException { return in.readLine(); }
+
+        public void close() throws IOException { in.close(); }
+    }
+
+    /**
+     * Acompanha um arquivo que continua recebendo linhas (como tail -f). Uma
+     * linha sem quebra no fim do arquivo só é entregue quando for completada.
+     */
+    private static final class FollowSource implements LineSource {
+        private static final long POLL_MILLIS = 200;
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        private byte[] partial = new byte[256];
+        private int partialSize;
+        private long position;
+
+        FollowSource(Path file) throws IOException { channel = FileChannel.open(file, StandardOpenOption.READ); }
+
+        public String next() throws IOException {
+            while (true) {
+                while (buf.hasRemaining()) {
+                    byte b = buf.get();
+                    if (b == '\n') {
+                        int len = partialSize > 0 && partial[partialSize - 1] == '\r' ? partialSize - 1 : partialSize;
+                        String line = new String(partial, 0, len, StandardCharsets.UTF_8);
+                        partialSize = 0;
+                        return line;
+                    }
+                    if (partialSize == partial.length) partial = Arrays.copyOf(partial, partialSize * 2);
+                    partial[partialSize++] = b;
+                }
+                buf.clear();
+                int n = channel.read(buf, position);
+                if (n > 0) {
+                    position += n;
+                    buf.flip();
+                } else {
+                    buf.limit(0);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+            }
+        }
+
+        public void close() throws IOException { channel.close(); }
+    }
+
+    static List<String> usage() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Uso: java SuspicionPipeline --stream <arquivo.csv|-> [--follow] [--lateness <minutos>] [--horizon <minutos>]");
+        lines.add("  -           lê as transações da entrada padrão até o fim");
+        lines.add("  --follow    continua lendo o arquivo conforme novas linhas são anexadas");
+        lines.add("  --lateness  atraso de tempo de evento tolerado antes de descartar, em minutos (padrão 60)");
+        lines.add("              um arquivo que não está em ordem de tempo precisa de um atraso que cubra toda a");
+        lines.add("              desordem; o resumo mostra a maior desordem vista, que é o valor que não descarta nada");
+        lines.add("  --horizon   esquece arestas fora do k-core sem nova ocorrência há mais de tantos minutos");
+        lines.add("              (padrão 0: guarda todas); com horizonte, só arestas recentes levam uma conta ao k-core");
+        lines.add("Memória: janelas de smurfing e cadeias de layering expiram com o tempo de evento. Cada conta");
+        lines.add("  vista guarda o saldo e as marcas de alerta até o fim (o saldo é acumulado), algumas dezenas de");
+        lines.add("  bytes por conta. Sem horizonte, as arestas fora do k-core crescem com o grafo: menos de 2k por");
+        lines.add("  conta fora do núcleo, em média (k = grau mínimo das comunidades).");
+        return lines;
+    }
+}
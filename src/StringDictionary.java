@@ -0,0 +1,31 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dicionário que associa cada string distinta a um código inteiro denso,
+ * atribuído na ordem da primeira ocorrência.
+ */
+final class StringDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int intern(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    String get(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Armazena informações de suspeita identificada. A conta e as evidências
+ * referenciam o {@link TransactionStore} (ID da conta e índices de linha).
+ */
+class Suspicion {
+    public final int account;
+    public final String reason;
+    public final int score;
+    public final int[] evidence;
+
+    public Suspicion(int account, String reason, int score, int[] evidence) {
+        this.account = account;
+        this.reason = reason;
+        this.score = score;
+        this.evidence = evidence;
+    }
+
+    public String format(TransactionStore store) {
+        return String.format("Conta: %s | Motivo: %s | Score: %d | Evidências: %d transações",
+            store.accountId(account), reason, score, evidence.length);
+    }
+}
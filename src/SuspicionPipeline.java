@@ -1,462 +1,861 @@
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
-import java.time.*;
-import java.time.temporal.ChronoUnit;
-import java.util.concurrent.TimeUnit;
-
-/**
- * Classe principal do pipeline de detecção de transações suspeitas.
- */
-public class SuspicionPipeline {
-
-    // --- PARÂMETROS DE DETECÇÃO ---
-    private static final double TOLERANCE = 0.05;
-    private static final long SMURF_WINDOW_MINUTES = 6000;
-    private static final double SMURF_UNIT_LIMIT = 20000.0;
-    private static final int SMURF_MIN_TX = 5;
-    private static final int LAYERING_MAX_DEPTH = 4;
-    private static final double LAYERING_DELTA = 5000.0;
-    private static final long LAYERING_TIME_WINDOW_MINUTES = 2880;
-    private static final int DENSE_MIN_DEGREE = 2;
-
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        while (true) {
-            printDatasetMenu();
-            String datasetChoice = scanner.nextLine();
-            String selectedFile = null;
-
-            switch (datasetChoice) {
-                case "1":
-                    selectedFile = "fraud_dataset.csv";
-                    break;
-                case "2":
-                    selectedFile = "not_fraud_dataset.csv";
-                    break;
-                case "3":
-                    selectedFile = "full_dataset.csv";
-                    break;
-                case "4":
-                    selectedFile = "small_not_fraud_dataset.csv";
-                    break;
-                case "5":
-                    System.out.println("Saindo do programa. Até mais!");
-                    return;
-                default:
-                    System.out.println("Opção inválida. Por favor, tente novamente.");
-                    continue;
-            }
-
-            printAlgorithmMenu();
-            String algorithmChoice = scanner.nextLine();
-            if (algorithmChoice.equals("6")) {
-                continue;
-            }
-
-            runAnalysis(selectedFile, algorithmChoice);
-            System.out.println("\nPressione Enter para voltar ao menu principal...");
-            scanner.nextLine();
-        }
-    }
-
-    private static void printDatasetMenu() {
-        System.out.println("\n--- Pipeline de Detecção de Fraudes ---");
-        System.out.println("Etapa 1: Escolha o conjunto de dados para analisar:");
-        System.out.println("1. Dataset com Fraudes (fraud_dataset.csv)");
-        System.out.println("2. Dataset sem Fraudes (not_fraud_dataset.csv)");
-        System.out.println("3. Dataset Completo (full_dataset.csv)");
-        System.out.println("4. Dataset Pequeno sem Fraudes (small_not_fraud_dataset.csv)");
-        System.out.println("5. Sair");
-        System.out.print("Escolha uma opção: ");
-    }
-
-    private static void printAlgorithmMenu() {
-        System.out.println("\nEtapa 2: Escolha qual algoritmo de detecção executar:");
-        System.out.println("1. Apenas Desequilíbrio de Fluxo");
-        System.out.println("2. Apenas Smurfing");
-        System.out.println("3. Apenas Layering");
-        System.out.println("4. Apenas Comunidades Densas");
-        System.out.println("5. Executar TODOS os algoritmos (Pipeline Completo)");
-        System.out.println("6. Voltar ao menu anterior");
-        System.out.print("Escolha uma opção: ");
-    }
-
-    private static void runAnalysis(String fileName, String algorithmChoice) {
-        if (!Files.exists(Paths.get(fileName))) {
-            System.err.println("\nERRO: O arquivo '" + fileName + "' não foi encontrado!");
-            return;
-        }
-
-        System.out.println("\n=============================================");
-        System.out.println("Iniciando análise do arquivo: " + fileName);
-
-        List<Transaction> transactions = loadTransactions(fileName);
-        System.out.println("Total de transações carregadas: " + transactions.size());
-
-        if (transactions.isEmpty()) {
-            System.err.println("Nenhuma transação válida encontrada no arquivo.");
-            return;
-        }
-
-        Map<String, Long> executionTimes = new LinkedHashMap<>();
-        List<Suspicion> allAlerts = new ArrayList<>();
-        long algorithmsTotalTime = 0;
-
-        if (algorithmChoice.equals("1") || algorithmChoice.equals("5")) {
-            System.out.println("Executando FlowChecker...");
-            long startTime = System.nanoTime();
-            FlowChecker flowChecker = new FlowChecker();
-            allAlerts.addAll(flowChecker.check(transactions));
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            executionTimes.put("FlowChecker", duration);
-            algorithmsTotalTime += duration;
-        }
-
-        if (algorithmChoice.equals("2") || algorithmChoice.equals("5")) {
-            System.out.println("Executando SmurfingDetector...");
-            long startTime = System.nanoTime();
-            SmurfingDetector smurfDetector = new SmurfingDetector(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX);
-            allAlerts.addAll(smurfDetector.detect(transactions));
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            executionTimes.put("SmurfingDetector", duration);
-            algorithmsTotalTime += duration;
-        }
-
-        if (algorithmChoice.equals("3") || algorithmChoice.equals("5")) {
-            System.out.println("Executando LayeringDetector...");
-            long startTime = System.nanoTime();
-            LayeringDetector layeringDetector = new LayeringDetector(LAYERING_MAX_DEPTH, LAYERING_DELTA, LAYERING_TIME_WINDOW_MINUTES);
-            allAlerts.addAll(layeringDetector.detect(transactions));
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            executionTimes.put("LayeringDetector", duration);
-            algorithmsTotalTime += duration;
-        }
-
-        if (algorithmChoice.equals("4") || algorithmChoice.equals("5")) {
-            System.out.println("Executando CommunityDetector...");
-            long startTime = System.nanoTime();
-            CommunityDetector communityDetector = new CommunityDetector(DENSE_MIN_DEGREE);
-            allAlerts.addAll(communityDetector.detect(transactions));
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            executionTimes.put("CommunityDetector", duration);
-            algorithmsTotalTime += duration;
-        }
-
-        System.out.println("Unificando e rankeando os alertas...");
-        RiskRanker ranker = new RiskRanker();
-        List<Suspicion> ranked = ranker.rank(allAlerts);
-
-        String analysisType = algorithmChoice.equals("5") ? "all_algorithms" : "algo_" + algorithmChoice;
-        String resultsCsvFile = "suspicion_results_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".csv";
-        String timesTxtFile = "execution_times_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".txt";
-
-        saveResultsToCsv(ranked, resultsCsvFile);
-        saveExecutionTimes(executionTimes, algorithmsTotalTime, timesTxtFile);
-
-        System.out.println("\n--- RESULTADO DAS ANÁLISES DE SUSPEITA ---");
-        if (ranked.isEmpty()) {
-            System.out.println("Nenhuma fraude detectada com a configuração selecionada.");
-        } else {
-            for (Suspicion s : ranked) {
-                System.out.println(s);
-            }
-        }
-
-        System.out.println("\n--- TEMPO DE EXECUÇÃO ---");
-        if (executionTimes.isEmpty()){
-            System.out.println("Nenhum algoritmo foi executado para esta opção.");
-        } else {
-            for (Map.Entry<String, Long> entry : executionTimes.entrySet()) {
-                System.out.println(entry.getKey() + ": " + entry.getValue() + " ms");
-            }
-        }
-        System.out.println("--------------------------------------");
-        System.out.println("Tempo Total dos Algoritmos: " + algorithmsTotalTime + " ms");
-
-        System.out.println("\nAnálise concluída.");
-        System.out.println("Resultados salvos em '" + resultsCsvFile + "'");
-        System.out.println("Tempos de execução salvos em '" + timesTxtFile + "'");
-        System.out.println("=============================================");
-    }
-
-    private static List<Transaction> loadTransactions(String fileName) {
-        System.out.println(">>> Abrindo " + fileName);
-        List<Transaction> list = new ArrayList<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
-
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            br.readLine();
-
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty() || line.contains("BEGIN LAUNDERING ATTEMPT") || line.contains("END LAUNDERING ATTEMPT")) {
-                    continue;
-                }
-                String[] parts = line.split(",");
-                if (parts.length < 11) continue;
-
-                try {
-                    LocalDateTime timestamp = LocalDateTime.parse(parts[0].trim(), formatter);
-                    String origin = parts[2].trim();
-                    String destination = parts[4].trim();
-                    double amount = Double.parseDouble(parts[5].trim());
-                    Transaction tx = new Transaction(origin, destination, amount, timestamp);
-                    list.add(tx);
-                } catch (Exception e) {
-                    System.err.println("    Erro ao processar a linha: " + line + " -> " + e.getMessage());
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Erro ao ler o arquivo: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return list;
-    }
-
-    private static void saveResultsToCsv(List<Suspicion> results, String fileName) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
-            pw.println("Account,Reason,Score,EvidenceCount");
-            if (results.isEmpty()) {
-                pw.println("Nenhuma fraude detectada,,,");
-            } else {
-                for (Suspicion s : results) {
-                    String reason = "\"" + s.reason.replace("\"", "\"\"") + "\"";
-                    pw.println(s.account + "," + reason + "," + s.score + "," + s.evidence.size());
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar resultados no CSV: " + e.getMessage());
-        }
-    }
-
-    private static void saveExecutionTimes(Map<String, Long> times, long totalTime, String fileName) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
-            pw.println("--- TEMPO DE EXECUÇÃO DOS ALGORITMOS ---");
-            if (times.isEmpty()){
-                pw.println("Nenhum algoritmo foi executado para esta opção.");
-            } else {
-                for (Map.Entry<String, Long> entry : times.entrySet()) {
-                    pw.println(entry.getKey() + ": " + entry.getValue() + " ms");
-                }
-            }
-            pw.println("--------------------------------------");
-            pw.println("Tempo de Execução Total dos Algoritmos: " + totalTime + " ms");
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar tempos de execução: " + e.getMessage());
-        }
-    }
-}
-
-/**
- * Representa uma transação financeira.
- */
-class Transaction {
-    public final String origin;
-    public final String destination;
-    public final double amount;
-    public final LocalDateTime timestamp;
-
-    public Transaction(String o, String d, double a, LocalDateTime t) {
-        this.origin = o;
-        this.destination = d;
-        this.amount = a;
-        this.timestamp = t;
-    }
-}
-
-/**
- * Armazena informações de suspeita identificada.
- */
-class Suspicion {
-    public final String account;
-    public final String reason;
-    public final int score;
-    public final List<Transaction> evidence;
-
-    public Suspicion(String account, String reason, int score, List<Transaction> evidence) {
-        this.account = account;
-        this.reason = reason;
-        this.score = score;
-        this.evidence = evidence;
-    }
-
-    @Override
-    public String toString() {
-        return String.format("Conta: %s | Motivo: %s | Score: %d | Evidências: %d transações", 
-            account, reason, score, evidence.size());
-    }
-}
-
-class FlowChecker {
-    private static final double LIMITE_SUSPEITO = 100000.0;
-    public List<Suspicion> check(List<Transaction> transactions) {
-        Map<String, Double> balancoContas = new HashMap<>();
-        for (Transaction tx : transactions) {
-            balancoContas.merge(tx.destination, tx.amount, Double::sum);
-            balancoContas.merge(tx.origin, -tx.amount, Double::sum);
-        }
-        List<Suspicion> results = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : balancoContas.entrySet()) {
-            String idDaConta = entry.getKey();
-            Double valorDoBalanco = entry.getValue();
-            if (valorDoBalanco < -LIMITE_SUSPEITO) {
-                Suspicion alerta = new Suspicion(idDaConta, "Desequilíbrio de fluxo", 1, filterByAccount(transactions, idDaConta));
-                results.add(alerta);
-            }
-        }
-        return results;
-    }
-
-    private List<Transaction> filterByAccount(List<Transaction> txs, String acc) {
-        List<Transaction> list = new ArrayList<>();
-        for (Transaction tx : txs) {
-            if (tx.origin.equals(acc) || tx.destination.equals(acc)) {
-                list.add(tx);
-            }
-        }
-        return list;
-    }
-}
-
-class SmurfingDetector {
-    private final long windowMinutes; private final double unitLimit; private final int minTx;
-    public SmurfingDetector(long w, double u, int m) { windowMinutes = w; unitLimit = u; minTx = m; }
-    public List<Suspicion> detect(List<Transaction> transactions) {
-        Map<String, List<Transaction>> byOrigin = new HashMap<>();
-        for (Transaction tx : transactions) byOrigin.computeIfAbsent(tx.origin, k -> new ArrayList<>()).add(tx);
-        List<Suspicion> results = new ArrayList<>();
-        for (Map.Entry<String, List<Transaction>> e : byOrigin.entrySet()) {
-            List<Transaction> ev = e.getValue();
-            ev.sort(Comparator.comparing(t -> t.timestamp));
-            for (int i = 0; i < ev.size(); i++) {
-                int cnt = 0; List<Transaction> grp = new ArrayList<>();
-                for (int j = i; j < ev.size(); j++) {
-                    long diff = ChronoUnit.MINUTES.between(ev.get(i).timestamp, ev.get(j).timestamp);
-                    if (diff <= windowMinutes && ev.get(j).amount <= unitLimit) {
-                        cnt++; grp.add(ev.get(j));
-                    } else break;
-                }
-                if (cnt >= minTx) { results.add(new Suspicion(e.getKey(), "Smurfing detectado", 2, grp)); break; }
-            }
-        }
-        return results;
-    }
-}
-
-class LayeringDetector {
-    private final int maxDepth; private final double delta; private final long timeWindow;
-    public LayeringDetector(int d, double v, long t) { maxDepth = d; delta = v; timeWindow = t; }
-    public List<Suspicion> detect(List<Transaction> transactions) {
-        Map<String, List<Transaction>> map = new HashMap<>();
-        for (Transaction tx : transactions) map.computeIfAbsent(tx.origin, k -> new ArrayList<>()).add(tx);
-        List<Suspicion> res = new ArrayList<>();
-        for (Transaction tx : transactions) dfs(tx.origin, tx.destination, tx.amount, tx.timestamp,
-            new LinkedHashSet<>(Arrays.asList(tx.origin, tx.destination)), map, new ArrayList<>(Arrays.asList(tx)), res);
-        return res;
-    }
-    private void dfs(String src, String cur, double prevAmt, LocalDateTime prevTime,
-                     Set<String> vis, Map<String, List<Transaction>> map,
-                     List<Transaction> path, List<Suspicion> res) {
-        if (path.size() >= maxDepth) { res.add(new Suspicion(src, "Layering detectado", 3, new ArrayList<>(path))); return; }
-        for (Transaction nxt : map.getOrDefault(cur, Collections.emptyList())) {
-            if (!vis.contains(nxt.destination)) {
-                long diff = ChronoUnit.MINUTES.between(prevTime, nxt.timestamp);
-                if (diff <= timeWindow && Math.abs(nxt.amount - prevAmt) <= delta) {
-                    vis.add(nxt.destination); path.add(nxt);
-                    dfs(src, nxt.destination, nxt.amount, nxt.timestamp, vis, map, path, res);
-                    path.remove(path.size() - 1); vis.remove(nxt.destination);
-                }
-            }
-        }
-    }
-}
-
-/*
- * Detecta comunidades densas via k-core (grau mínimo DENSE_MIN_DEGREE).
-*/
-class CommunityDetector {
-    private final int minDegree;
-
-    public CommunityDetector(int d) {
-        minDegree = d;
-    }
-
-    public List<Suspicion> detect(List<Transaction> txs) {
-        Map<String, Set<String>> adj = new HashMap<>();
-        for (Transaction tx : txs) {
-            adj.computeIfAbsent(tx.origin, k -> new HashSet<>()).add(tx.destination);
-            adj.computeIfAbsent(tx.destination, k -> new HashSet<>()).add(tx.origin);
-        }
-
-        Queue<String> queue = new LinkedList<>();
-        Map<String, Integer> degrees = new HashMap<>();
-        for(Map.Entry<String, Set<String>> e : adj.entrySet()){
-            degrees.put(e.getKey(), e.getValue().size());
-        }
-
-        for (Map.Entry<String, Integer> e : degrees.entrySet()) {
-            if (e.getValue() < minDegree) {
-                queue.add(e.getKey());
-            }
-        }
-
-        Set<String> removedNodes = new HashSet<>();
-
-        while (!queue.isEmpty()) {
-            String v = queue.poll();
-            if(removedNodes.contains(v)) continue;
-            removedNodes.add(v);
-
-            for (String neighbor : adj.getOrDefault(v, Collections.emptySet())) {
-                if (!removedNodes.contains(neighbor)) {
-                    degrees.put(neighbor, degrees.get(neighbor) - 1);
-                    if (degrees.get(neighbor) < minDegree) {
-                        queue.add(neighbor);
-                    }
-                }
-            }
-        }
-
-        adj.keySet().removeAll(removedNodes);
-
-        List<Suspicion> res = new ArrayList<>();
-        if (!adj.isEmpty()) {
-            Set<String> community = adj.keySet();
-            List<Transaction> evid = new ArrayList<>();
-            for (Transaction tx : txs) {
-                if (community.contains(tx.origin) && community.contains(tx.destination)) {
-                    evid.add(tx);
-                }
-            }
-            for (String acc : community) {
-                res.add(new Suspicion(acc, "Comunidade densa", 2, evid));
-            }
-        }
-        return res;
-    }
-}
-
-class RiskRanker {
-    public List<Suspicion> rank(List<Suspicion> alerts) {
-        Map<String, Suspicion> merged = new HashMap<>();
-        for (Suspicion s : alerts) {
-            merged.merge(s.account, s, (oldS, newS) -> new Suspicion(
-                oldS.account,
-                oldS.reason + "; " + newS.reason,
-                oldS.score + newS.score,
-                concat(oldS.evidence, newS.evidence)
-            ));
-        }
-        List<Suspicion> list = new ArrayList<>(merged.values());
-        list.sort(Comparator.comparingInt((Suspicion s) -> s.score).reversed());
-        return list;
-    }
-    private List<Transaction> concat(List<Transaction> a, List<Transaction> b) {
-        List<Transaction> c = new ArrayList<>(a);
-        c.addAll(b);
-        return c;
-    }
-}
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.time.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe principal do pipeline de detecção de transações suspeitas.
+ */
+public class SuspicionPipeline {
+
+    // --- PARÂMETROS DE DETECÇÃO ---
+    private static final double TOLERANCE = 0.05;
+    private static final long SMURF_WINDOW_MINUTES = 6000;
+    private static final double SMURF_UNIT_LIMIT = 20000.0;
+    private static final int SMURF_MIN_TX = 5;
+    private static final long[] SMURF_SWEEP_WINDOWS = {1440, 2880, 6000, 10080};
+    private static final double[] SMURF_SWEEP_UNIT_LIMITS = {5000.0, 10000.0, 20000.0};
+    private static final int[] SMURF_SWEEP_MIN_TX = {3, 5, 8};
+    private static final int LAYERING_MAX_DEPTH = 4;
+    private static final double LAYERING_DELTA = 5000.0;
+    private static final long LAYERING_TIME_WINDOW_MINUTES = 2880;
+    private static final long LAYERING_MAX_STATES = LayeringDetector.DEFAULT_MAX_STATES;
+    private static final int DENSE_MIN_DEGREE = 2;
+    private static final int CYCLE_MAX_LENGTH = 6;
+    private static final long CYCLE_TIME_WINDOW_MINUTES = 2880;
+    private static final long CYCLE_MAX_STATES = CycleDetector.DEFAULT_MAX_STATES;
+    private static final long STREAM_ALLOWED_LATENESS_MINUTES = 60;
+    private static final long STREAM_EDGE_HORIZON_MINUTES = 0;
+
+    // --- PARÂMETROS DE EXECUÇÃO ---
+    private static final long DATASET_CACHE_BUDGET_BYTES = Runtime.getRuntime().maxMemory() / 4;
+    private static final DatasetCache DATASET_CACHE = new DatasetCache(DATASET_CACHE_BUDGET_BYTES);
+    private static final ResultExporter EXPORTER = new ResultExporter();
+    private static final boolean CONCURRENT_DETECTORS = true;
+    /** Quantas contas o ranking mantém (0 = todas). */
+    private static final int RANKING_TOP_K = 0;
+    /** Contas do ranking mostradas no console; a lista completa vai para os arquivos. */
+    private static final int CONSOLE_TOP_N = 20;
+    private static final int DETECTOR_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final DetectorExecutor.ThreadKind DETECTOR_THREAD_KIND = DetectorExecutor.ThreadKind.PLATFORM;
+    /** CSVs maiores que isto são analisados fora da memória, em partições. */
+    private static final long OUT_OF_CORE_THRESHOLD_BYTES = Runtime.getRuntime().maxMemory() / 2;
+    private static final long OUT_OF_CORE_MEMORY_BUDGET_BYTES = Runtime.getRuntime().maxMemory() / 4;
+    private static final Path OUT_OF_CORE_SPILL_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "graphs_fraud_detection");
+    /** Uma conta amostrada a cada N nos histogramas de métricas (0 = só contadores). */
+    private static final int METRICS_SAMPLE_RATE = PipelineMetrics.DEFAULT_SAMPLE_RATE;
+    // --- TRIAGEM POR SKETCHES ---
+    private static final double PRESCREEN_EPSILON = 1e-5;
+    private static final double PRESCREEN_DELTA = 0.01;
+    private static final int PRESCREEN_HEAVY_HITTERS = 4096;
+    // --- MODO EM LOTE ---
+    private static final int BATCH_JOBS = Runtime.getRuntime().availableProcessors();
+    /** Heap compartilhado pelos arquivos analisados ao mesmo tempo. */
+    private static final long BATCH_MEMORY_BUDGET_BYTES = Runtime.getRuntime().maxMemory() / 2;
+    /** Ligado por --out-of-core: força o modo particionado em qualquer tamanho. */
+    private static boolean forceOutOfCore;
+    /** Ligados por --prescreen e --prescreen-validate (este também roda os detectores triados sem a triagem). */
+    private static boolean prescreen;
+    private static boolean prescreenValidate;
+    /**
+     * Ligado por --speedup: roda os detectores mais uma vez, em sequência, para
+     * relatar o speedup da execução concorrente. Dobra o tempo de detecção.
+     */
+    private static boolean sequentialReference;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--stream")) {
+            runStreaming(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--evaluate")) {
+            runEvaluation(args);
+            return;
+        }
+        forceOutOfCore = Arrays.asList(args).contains("--out-of-core");
+        prescreenValidate = Arrays.asList(args).contains("--prescreen-validate");
+        prescreen = prescreenValidate || Arrays.asList(args).contains("--prescreen");
+        sequentialReference = Arrays.asList(args).contains("--speedup");
+        PipelineMetrics.setSampleRate(METRICS_SAMPLE_RATE);
+        // as exportações pendentes terminam em qualquer saída, inclusive no fim da entrada padrão
+        try {
+            runMenu();
+        } finally {
+            EXPORTER.close();
+        }
+    }
+
+    private static void runMenu() {
+        Scanner scanner = new Scanner(System.in);
+        while (true) {
+            printDatasetMenu();
+            String datasetChoice = scanner.nextLine();
+            String selectedFile = null;
+
+            switch (datasetChoice) {
+                case "1":
+                    selectedFile = "fraud_dataset.csv";
+                    break;
+                case "2":
+                    selectedFile = "not_fraud_dataset.csv";
+                    break;
+                case "3":
+                    selectedFile = "full_dataset.csv";
+                    break;
+                case "4":
+                    selectedFile = "small_not_fraud_dataset.csv";
+                    break;
+                case "5":
+                    System.out.println("Saindo do programa. Até mais!");
+                    return;
+                default:
+                    System.out.println("Opção inválida. Por favor, tente novamente.");
+                    continue;
+            }
+
+            printAlgorithmMenu();
+            String algorithmChoice = scanner.nextLine();
+            if (algorithmChoice.equals("6")) {
+                continue;
+            }
+
+            if (algorithmChoice.equals("7")) {
+                runSmurfingSweep(selectedFile);
+            } else {
+                runAnalysis(selectedFile, algorithmChoice);
+            }
+            System.out.println("\nPressione Enter para voltar ao menu principal...");
+            scanner.nextLine();
+        }
+    }
+
+    /** Constantes de detecção por nome, para --set e --grid. */
+    private static BatchRunner.Parameters detectionParameters() {
+        return new BatchRunner.Parameters()
+            .define("SMURF_WINDOW_MINUTES", SMURF_WINDOW_MINUTES)
+            .define("SMURF_UNIT_LIMIT", SMURF_UNIT_LIMIT)
+            .define("SMURF_MIN_TX", SMURF_MIN_TX)
+            .define("LAYERING_MAX_DEPTH", LAYERING_MAX_DEPTH)
+            .define("LAYERING_DELTA", LAYERING_DELTA)
+            .define("LAYERING_TIME_WINDOW_MINUTES", LAYERING_TIME_WINDOW_MINUTES)
+            .define("LAYERING_MAX_STATES", LAYERING_MAX_STATES)
+            .define("DENSE_MIN_DEGREE", DENSE_MIN_DEGREE)
+            .define("CYCLE_MAX_LENGTH", CYCLE_MAX_LENGTH)
+            .define("CYCLE_TIME_WINDOW_MINUTES", CYCLE_TIME_WINDOW_MINUTES)
+            .define("CYCLE_MAX_STATES", CYCLE_MAX_STATES)
+            .define("TOLERANCE", TOLERANCE)
+            .define("RANKING_TOP_K", RANKING_TOP_K);
+    }
+
+    /**
+     * Modo de avaliação: mede precisão, recall e custo dos detectores numa
+     * grade de parâmetros, contra o rótulo "Is Laundering".
+     */
+    private static void runEvaluation(String[] args) {
+        if (args.length < 2) {
+            EvaluationHarness.usage().forEach(System.err::println);
+            return;
+        }
+        BatchRunner.Parameters parameters = detectionParameters();
+        Set<BatchRunner.Detector> detectors = EnumSet.allOf(BatchRunner.Detector.class);
+        Map<String, double[]> grid = new LinkedHashMap<>();
+        String fileName = args[1];
+        String outputFile = "evaluation_for_" + Paths.get(fileName).getFileName().toString().replace(".csv", "") + ".csv";
+        try {
+            for (int i = 2; i < args.length; i++) {
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                switch (args[i]) {
+                    case "--detectors": detectors = BatchRunner.parseDetectors(args[++i]); break;
+                    case "--grid": EvaluationHarness.addGrid(grid, parameters, args[++i]); break;
+                    case "--set": parameters.set(args[++i]); break;
+                    case "--out": outputFile = args[++i]; break;
+                    default: throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERRO: " + e.getMessage());
+            EvaluationHarness.usage().forEach(System.err::println);
+            return;
+        }
+        if (!Files.exists(Paths.get(fileName))) {
+            System.err.println("\nERRO: O arquivo '" + fileName + "' não foi encontrado!");
+            return;
+        }
+        TransactionStore transactions = loadTransactions(fileName).store;
+        if (transactions.size == 0) {
+            System.err.println("Nenhuma transação válida encontrada no arquivo.");
+            return;
+        }
+        try {
+            int settings = new EvaluationHarness(parameters, detectors, grid).run(transactions, outputFile);
+            System.out.println(settings + " configurações avaliadas; tabela salva em '" + outputFile + "'");
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar a avaliação: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Modo em lote: analisa vários CSVs sem o menu, com o BatchRunner.
+     */
+    private static void runBatch(String[] args) {
+        if (args.length < 2) {
+            BatchRunner.usage().forEach(System.err::println);
+            return;
+        }
+        BatchRunner.Parameters parameters = detectionParameters();
+        Set<BatchRunner.Detector> detectors = EnumSet.allOf(BatchRunner.Detector.class);
+        int jobs = BATCH_JOBS;
+        long budgetBytes = BATCH_MEMORY_BUDGET_BYTES;
+        Path outputDir = Paths.get(".");
+        try {
+            for (int i = 2; i < args.length; i++) {
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                switch (args[i]) {
+                    case "--detectors": detectors = BatchRunner.parseDetectors(args[++i]); break;
+                    case "--set": parameters.set(args[++i]); break;
+                    case "--jobs": jobs = Integer.parseInt(args[++i]); break;
+                    case "--memory-mb": budgetBytes = Long.parseLong(args[++i]) * 1024 * 1024; break;
+                    case "--out": outputDir = Paths.get(args[++i]); break;
+                    default: throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERRO: " + e.getMessage());
+            BatchRunner.usage().forEach(System.err::println);
+            return;
+        }
+        PipelineMetrics.setSampleRate(METRICS_SAMPLE_RATE);
+        try {
+            List<Path> files = BatchRunner.resolve(args[1]);
+            if (files.isEmpty()) {
+                System.err.println("\nERRO: Nenhum CSV encontrado em '" + args[1] + "'");
+                return;
+            }
+            List<BatchRunner.FileReport> reports = new BatchRunner(parameters, detectors, jobs, budgetBytes,
+                outputDir, OUT_OF_CORE_SPILL_DIR).run(files);
+            if (reports.stream().anyMatch(r -> r.error != null)) System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Erro no modo em lote: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Modo streaming: consome o feed transação a transação com o StreamingEngine.
+     */
+    private static void runStreaming(String[] args) {
+        if (args.length < 2) {
+            StreamingEngine.usage().forEach(System.err::println);
+            return;
+        }
+        Path source = args[1].equals("-") ? null : Paths.get(args[1]);
+        boolean follow = false;
+        long lateness = STREAM_ALLOWED_LATENESS_MINUTES;
+        long horizon = STREAM_EDGE_HORIZON_MINUTES;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--follow")) {
+                follow = true;
+            } else if (args[i].equals("--lateness") && i + 1 < args.length) {
+                try {
+                    lateness = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    StreamingEngine.usage().forEach(System.err::println);
+                    return;
+                }
+            } else if (args[i].equals("--horizon") && i + 1 < args.length) {
+                try {
+                    horizon = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    StreamingEngine.usage().forEach(System.err::println);
+                    return;
+                }
+            } else {
+                StreamingEngine.usage().forEach(System.err::println);
+                return;
+            }
+        }
+        if (source != null && !Files.exists(source)) {
+            System.err.println("\nERRO: O arquivo '" + args[1] + "' não foi encontrado!");
+            return;
+        }
+        StreamingEngine engine = new StreamingEngine(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX,
+            LAYERING_MAX_DEPTH, LAYERING_DELTA, LAYERING_TIME_WINDOW_MINUTES, DENSE_MIN_DEGREE,
+            lateness, horizon);
+        try {
+            engine.run(source, follow);
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o feed: " + e.getMessage());
+        }
+    }
+
+    private static void printDatasetMenu() {
+        System.out.println("\n--- Pipeline de Detecção de Fraudes ---");
+        System.out.println("Etapa 1: Escolha o conjunto de dados para analisar:");
+        System.out.println("1. Dataset com Fraudes (fraud_dataset.csv)");
+        System.out.println("2. Dataset sem Fraudes (not_fraud_dataset.csv)");
+        System.out.println("3. Dataset Completo (full_dataset.csv)");
+        System.out.println("4. Dataset Pequeno sem Fraudes (small_not_fraud_dataset.csv)");
+        System.out.println("5. Sair");
+        System.out.print("Escolha uma opção: ");
+    }
+
+    private static void printAlgorithmMenu() {
+        System.out.println("\nEtapa 2: Escolha qual algoritmo de detecção executar:");
+        System.out.println("1. Apenas Desequilíbrio de Fluxo");
+        System.out.println("2. Apenas Smurfing");
+        System.out.println("3. Apenas Layering");
+        System.out.println("4. Apenas Comunidades Densas");
+        System.out.println("5. Executar TODOS os algoritmos (Pipeline Completo)");
+        System.out.println("6. Voltar ao menu anterior");
+        System.out.println("7. Varredura de parâmetros do Smurfing");
+        System.out.println("8. Apenas Ciclos Temporais (round-tripping)");
+        System.out.print("Escolha uma opção: ");
+    }
+
+    private static void runAnalysis(String fileName, String algorithmChoice) {
+        if (!Files.exists(Paths.get(fileName))) {
+            System.err.println("\nERRO: O arquivo '" + fileName + "' não foi encontrado!");
+            return;
+        }
+
+        System.out.println("\n=============================================");
+        System.out.println("Iniciando análise do arquivo: " + fileName);
+        PipelineMetrics.reset();
+
+        FlowChecker flowChecker = null;
+        SmurfingDetector smurfingDetector = null;
+        LayeringDetector layeringDetector = null;
+        CommunityDetector communityDetector = null;
+        CycleDetector cycleDetector = null;
+        if (algorithmChoice.equals("1") || algorithmChoice.equals("5")) {
+            flowChecker = new FlowChecker();
+        }
+        if (algorithmChoice.equals("2") || algorithmChoice.equals("5")) {
+            smurfingDetector = new SmurfingDetector(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX);
+        }
+        if (algorithmChoice.equals("3") || algorithmChoice.equals("5")) {
+            layeringDetector = new LayeringDetector(LAYERING_MAX_DEPTH, LAYERING_DELTA, LAYERING_TIME_WINDOW_MINUTES, LAYERING_MAX_STATES);
+        }
+        if (algorithmChoice.equals("4") || algorithmChoice.equals("5")) {
+            communityDetector = new CommunityDetector(DENSE_MIN_DEGREE);
+        }
+        if (algorithmChoice.equals("8") || algorithmChoice.equals("5")) {
+            cycleDetector = new CycleDetector(CYCLE_MAX_LENGTH, CYCLE_TIME_WINDOW_MINUTES, TOLERANCE, CYCLE_MAX_STATES);
+        }
+
+        Map<String, Long> executionTimes = new LinkedHashMap<>();
+        List<Suspicion> allAlerts = new ArrayList<>();
+        long algorithmsTotalTime = 0;
+        List<CommunityDetector.Community> communities = Collections.synchronizedList(new ArrayList<>());
+        StringDictionary accounts;
+        String loadLine;
+        DetectorExecutor.Outcome outcome;
+        List<String> prescreenReport = null;
+        TransactionStore store = null;
+
+        if (useOutOfCore(fileName)) {
+            if (prescreen) {
+                System.out.println(">>> Triagem por sketches ignorada no modo fora da memória.");
+            }
+            PartitionedAnalysis.Result analysis = runPartitioned(fileName, flowChecker, smurfingDetector,
+                layeringDetector, communityDetector, cycleDetector);
+            if (analysis == null || analysis.parse.rows == 0) {
+                System.err.println("Nenhuma transação válida encontrada no arquivo.");
+                return;
+            }
+            accounts = analysis.accounts;
+            outcome = analysis.outcome;
+            communities.addAll(analysis.communities);
+            loadLine = String.format("Carga do dataset (CSV, fora da memória): %d partições, %.1f MB em spill",
+                analysis.partitions, analysis.spilledBytes / (1024.0 * 1024.0));
+            for (Map.Entry<String, Long> entry : analysis.stageNanos.entrySet()) {
+                long duration = TimeUnit.NANOSECONDS.toMillis(entry.getValue());
+                executionTimes.put(entry.getKey(), duration);
+                algorithmsTotalTime += duration;
+            }
+        } else {
+            PipelineMetrics.Stage loadStage = PipelineMetrics.begin("Carga do dataset");
+            DatasetCache.Load load = loadTransactions(fileName);
+            loadStage.end();
+            TransactionStore transactions = load.store;
+            System.out.println("Total de transações carregadas: " + transactions.size);
+
+            if (transactions.size == 0) {
+                System.err.println("Nenhuma transação válida encontrada no arquivo.");
+                return;
+            }
+            accounts = transactions.accounts;
+            store = transactions;
+            loadLine = loadTimeLine(load);
+
+            SketchPrescreen.Result screen = null;
+            if (prescreen && (flowChecker != null || smurfingDetector != null || communityDetector != null)) {
+                System.out.println("Executando triagem por sketches...");
+                PipelineMetrics.Stage screenStage = PipelineMetrics.begin("SketchPrescreen");
+                screen = new SketchPrescreen(PRESCREEN_EPSILON, PRESCREEN_DELTA, PRESCREEN_HEAVY_HITTERS)
+                    .screen(transactions, new SketchPrescreen.Criteria(
+                        flowChecker != null ? FlowChecker.LIMITE_SUSPEITO : 0,
+                        SMURF_UNIT_LIMIT, smurfingDetector != null ? SMURF_MIN_TX : 0,
+                        communityDetector != null ? DENSE_MIN_DEGREE : 0));
+                long screenDuration = TimeUnit.NANOSECONDS.toMillis(screenStage.end());
+                executionTimes.put("SketchPrescreen", screenDuration);
+                algorithmsTotalTime += screenDuration;
+                PipelineMetrics.add(PipelineMetrics.Counter.PRESCREEN_ACCOUNTS_DROPPED, screen.accounts - screen.candidates);
+                PipelineMetrics.add(PipelineMetrics.Counter.PRESCREEN_ROWS_DROPPED, transactions.size - screen.store.size);
+            }
+
+            // com a triagem, o grafo completo só é montado para quem não passa por ela
+            System.out.println("Construindo índice do grafo...");
+            PipelineMetrics.Stage indexStage = PipelineMetrics.begin("TransactionGraph (índice)");
+            TransactionGraph graph = screen == null || layeringDetector != null || cycleDetector != null || prescreenValidate
+                ? new TransactionGraph(transactions) : null;
+            TransactionGraph screened = screen == null ? graph : new TransactionGraph(screen.store);
+            long indexDuration = TimeUnit.NANOSECONDS.toMillis(indexStage.end());
+            executionTimes.put("TransactionGraph (índice)", indexDuration);
+            algorithmsTotalTime += indexDuration;
+            SketchPrescreen.Result translation = screen;
+
+            List<DetectorExecutor.Task> detectors = new ArrayList<>();
+            if (flowChecker != null) {
+                FlowChecker detector = flowChecker;
+                detectors.add(new DetectorExecutor.Task("FlowChecker", () -> screenedAlerts(translation, detector.check(screened))));
+            }
+            if (smurfingDetector != null) {
+                SmurfingDetector detector = smurfingDetector;
+                detectors.add(new DetectorExecutor.Task("SmurfingDetector", () -> screenedAlerts(translation, detector.detect(screened))));
+            }
+            if (layeringDetector != null) {
+                LayeringDetector detector = layeringDetector;
+                detectors.add(new DetectorExecutor.Task("LayeringDetector", () -> detector.detect(graph)));
+            }
+            if (communityDetector != null) {
+                CommunityDetector detector = communityDetector;
+                detectors.add(new DetectorExecutor.Task("CommunityDetector", () -> {
+                    List<CommunityDetector.Community> found = detector.findCommunities(screened);
+                    if (translation != null) found = translation.toOriginalCommunities(found);
+                    communities.addAll(found);
+                    return detector.toSuspicions(found);
+                }));
+            }
+            if (cycleDetector != null) {
+                CycleDetector detector = cycleDetector;
+                detectors.add(new DetectorExecutor.Task("CycleDetector", () -> detector.detect(graph)));
+            }
+
+            for (DetectorExecutor.Task task : detectors) {
+                System.out.println("Executando " + task.name + "...");
+            }
+            DetectorExecutor executor = new DetectorExecutor(CONCURRENT_DETECTORS, DETECTOR_POOL_SIZE, DETECTOR_THREAD_KIND);
+            outcome = executor.run(detectors);
+            if (CONCURRENT_DETECTORS && detectors.size() > 1) {
+                if (sequentialReference) {
+                    System.out.println("Executando a passada sequencial de referência...");
+                    outcome = outcome.withSequentialReference(sequentialWallNanos(detectors, communities));
+                } else {
+                    System.out.println(">>> Speedup sobre a execução sequencial não medido; rode com --speedup para medi-lo.");
+                }
+            }
+
+            if (screen != null) {
+                prescreenReport = prescreenReport(screen, transactions, outcome.alerts, prescreenValidate
+                    ? exactAlerts(graph, flowChecker, smurfingDetector, communityDetector) : null);
+            }
+        }
+        if (layeringDetector != null && layeringDetector.truncatedOrigins() > 0) {
+            System.out.println(truncationLine("LayeringDetector", layeringDetector.truncatedOrigins(), layeringDetector.maxStates()));
+        }
+        if (cycleDetector != null && cycleDetector.truncatedOrigins() > 0) {
+            System.out.println(truncationLine("CycleDetector", cycleDetector.truncatedOrigins(), cycleDetector.maxStates()));
+        }
+        allAlerts.addAll(outcome.alerts);
+        for (Map.Entry<String, Long> entry : outcome.detectorNanos.entrySet()) {
+            long duration = TimeUnit.NANOSECONDS.toMillis(entry.getValue());
+            executionTimes.put(entry.getKey(), duration);
+            algorithmsTotalTime += duration;
+        }
+
+        System.out.println("Unificando e rankeando os alertas...");
+        RiskRanker ranker = new RiskRanker();
+        PipelineMetrics.Stage rankStage = PipelineMetrics.begin("RiskRanker");
+        List<RiskRanker.Ranked> ranked = ranker.rank(allAlerts, RANKING_TOP_K);
+        rankStage.end();
+
+        String analysisType = algorithmChoice.equals("5") ? "all_algorithms" : "algo_" + algorithmChoice;
+        String resultsCsvFile = "suspicion_results_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".csv";
+        String timesTxtFile = "execution_times_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".txt";
+        String metricsCsvFile = "metrics_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".csv";
+
+        String evidenceFile = "evidence_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".ndjson";
+        String communitiesCsvFile = communities.isEmpty() ? null
+            : "communities_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".csv";
+        TransactionStore evidenceStore = store;
+        EXPORTER.submit(resultsCsvFile + ", " + evidenceFile, () -> {
+            saveResultsToCsv(ranked, accounts, resultsCsvFile);
+            if (communitiesCsvFile != null) saveCommunitiesToCsv(communities, accounts, communitiesCsvFile);
+            ResultExporter.writeEvidence(ranked, accounts, evidenceStore, evidenceFile);
+        });
+        saveExecutionTimes(executionTimes, algorithmsTotalTime, outcome, loadLine, timesTxtFile);
+        saveMetrics(metricsCsvFile);
+        String prescreenTxtFile = null;
+        if (prescreenReport != null) {
+            prescreenTxtFile = "prescreen_for_" + fileName.replace(".csv", "") + "_" + analysisType + ".txt";
+            savePrescreenReport(prescreenReport, prescreenTxtFile);
+        }
+
+        System.out.println("\n--- RESULTADO DAS ANÁLISES DE SUSPEITA ---");
+        if (ranked.isEmpty()) {
+            System.out.println("Nenhuma fraude detectada com a configuração selecionada.");
+        } else {
+            for (RiskRanker.Ranked s : ranked.subList(0, Math.min(CONSOLE_TOP_N, ranked.size()))) {
+                System.out.println(s.format(accounts));
+            }
+            if (ranked.size() > CONSOLE_TOP_N) {
+                System.out.println("... e mais " + (ranked.size() - CONSOLE_TOP_N) + " contas em '" + resultsCsvFile + "'");
+            }
+        }
+
+        System.out.println("\n--- TEMPO DE EXECUÇÃO ---");
+        if (executionTimes.isEmpty()){
+            System.out.println("Nenhum algoritmo foi executado para esta opção.");
+        } else {
+            for (Map.Entry<String, Long> entry : executionTimes.entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue() + " ms");
+            }
+        }
+        System.out.println("--------------------------------------");
+        System.out.println("Tempo Total dos Algoritmos: " + algorithmsTotalTime + " ms");
+        System.out.println(detectorWallTimeLine(outcome));
+        System.out.println(effectiveParallelismLine(outcome));
+
+        if (prescreenReport != null) {
+            System.out.println("\n--- TRIAGEM POR SKETCHES ---");
+            prescreenReport.forEach(System.out::println);
+        }
+
+        System.out.println("\nAnálise concluída.");
+        System.out.println("Resultados e evidências sendo exportados em segundo plano para '" + resultsCsvFile
+            + "' e '" + evidenceFile + "'");
+        if (communitiesCsvFile != null) {
+            System.out.println(communities.size() + " comunidades densas exportadas para '" + communitiesCsvFile + "'");
+        }
+        System.out.println("Tempos de execução salvos em '" + timesTxtFile + "'");
+        System.out.println("Métricas salvas em '" + metricsCsvFile + "'");
+        if (prescreenTxtFile != null) {
+            System.out.println("Relatório da triagem salvo em '" + prescreenTxtFile + "'");
+        }
+        System.out.println("=============================================");
+    }
+
+    /**
+     * Avalia a grade de parâmetros do SmurfingDetector em uma única passada e
+     * salva uma linha por combinação.
+     */
+    private static void runSmurfingSweep(String fileName) {
+        if (!Files.exists(Paths.get(fileName))) {
+            System.err.println("\nERRO: O arquivo '" + fileName + "' não foi encontrado!");
+            return;
+        }
+
+        System.out.println("\n=============================================");
+        System.out.println("Varredura de parâmetros do Smurfing: " + fileName);
+
+        TransactionStore transactions = loadTransactions(fileName).store;
+        if (transactions.size == 0) {
+            System.err.println("Nenhuma transação válida encontrada no arquivo.");
+            return;
+        }
+        TransactionGraph graph = new TransactionGraph(transactions);
+
+        long startTime = System.nanoTime();
+        List<SmurfingDetector.SweepResult> grid = SmurfingDetector.sweep(graph,
+            SMURF_SWEEP_WINDOWS, SMURF_SWEEP_UNIT_LIMITS, SMURF_SWEEP_MIN_TX);
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        String sweepCsvFile = "smurfing_sweep_for_" + fileName.replace(".csv", "") + ".csv";
+        try (PrintWriter pw = new PrintWriter(new FileWriter(sweepCsvFile))) {
+            pw.println("WindowMinutes,UnitLimit,MinTx,FlaggedAccounts,Bursts,Transactions");
+            for (SmurfingDetector.SweepResult r : grid) {
+                pw.println(r.windowMinutes + "," + r.unitLimit + "," + r.minTx + ","
+                    + r.flaggedAccounts + "," + r.bursts + "," + r.transactions);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar a varredura no CSV: " + e.getMessage());
+        }
+
+        System.out.println("\n--- VARREDURA DE PARÂMETROS DO SMURFING ---");
+        for (SmurfingDetector.SweepResult r : grid) {
+            System.out.println(String.format("Janela: %d min | Limite: %.2f | Mín. tx: %d -> Contas: %d | Rajadas: %d | Transações: %d",
+                r.windowMinutes, r.unitLimit, r.minTx, r.flaggedAccounts, r.bursts, r.transactions));
+        }
+        System.out.println("--------------------------------------");
+        System.out.println(grid.size() + " combinações avaliadas em " + duration + " ms");
+        System.out.println("Varredura salva em '" + sweepCsvFile + "'");
+        System.out.println("=============================================");
+    }
+
+    /**
+     * A análise vai para o modo particionado quando pedido na linha de comando
+     * ou quando o CSV passa do limite e ainda não está no cache.
+     */
+    private static boolean useOutOfCore(String fileName) {
+        if (forceOutOfCore) return true;
+        if (DATASET_CACHE.contains(Paths.get(fileName))) return false;
+        try {
+            return Files.size(Paths.get(fileName)) > OUT_OF_CORE_THRESHOLD_BYTES;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static PartitionedAnalysis.Result runPartitioned(String fileName, FlowChecker flow, SmurfingDetector smurfing,
+                                                             LayeringDetector layering, CommunityDetector community,
+                                                             CycleDetector cycles) {
+        System.out.println(">>> Analisando " + fileName + " fora da memória (orçamento de "
+            + OUT_OF_CORE_MEMORY_BUDGET_BYTES / (1024 * 1024) + " MB por partição)");
+        try {
+            PartitionedAnalysis.Result analysis = new PartitionedAnalysis(OUT_OF_CORE_MEMORY_BUDGET_BYTES,
+                OUT_OF_CORE_SPILL_DIR, flow, smurfing, layering, community, cycles).run(Paths.get(fileName), new CsvLoader());
+            CsvLoader.Result parse = analysis.parse;
+            countParse(parse);
+            System.out.println(String.format(">>> %d linhas em %d partições (%.0f linhas/s na leitura)",
+                parse.rows, analysis.partitions, parse.rowsPerSecond()));
+            if (parse.rejected > 0) {
+                System.out.println(">>> Linhas malformadas descartadas: " + parse.rejected);
+            }
+            return analysis;
+        } catch (IOException e) {
+            System.err.println("Erro na análise fora da memória: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static DatasetCache.Load loadTransactions(String fileName) {
+        System.out.println(">>> Abrindo " + fileName);
+        try {
+            DatasetCache.Load load = DATASET_CACHE.load(Paths.get(fileName), new CsvLoader());
+            CsvLoader.Result result = load.parse;
+            if (result != null) {
+                countParse(result);
+                System.out.println(String.format(">>> %d linhas carregadas em %d ms (%.0f linhas/s, %.1f MB/s)",
+                    result.store.size, TimeUnit.NANOSECONDS.toMillis(result.nanos),
+                    result.rowsPerSecond(), result.megabytesPerSecond()));
+                if (result.rejected > 0) {
+                    System.out.println(">>> Linhas malformadas descartadas: " + result.rejected);
+                }
+            }
+            System.out.println(">>> " + loadTimeLine(load));
+            return load;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o arquivo: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new DatasetCache.Load(new TransactionStore.Builder().build(), DatasetCache.Source.CSV, 0, DatasetCache.Source.CSV, 0, null);
+    }
+
+    private static List<Suspicion> screenedAlerts(SketchPrescreen.Result screen, List<Suspicion> alerts) {
+        return screen == null ? alerts : screen.toOriginal(alerts);
+    }
+
+    /**
+     * Alertas dos detectores triados rodando no grafo completo, para medir o
+     * que a triagem perdeu.
+     */
+    private static List<Suspicion> exactAlerts(TransactionGraph graph, FlowChecker flow, SmurfingDetector smurfing,
+                                               CommunityDetector community) {
+        System.out.println("Validando a triagem no grafo completo...");
+        List<Suspicion> alerts = new ArrayList<>();
+        if (flow != null) alerts.addAll(flow.check(graph));
+        if (smurfing != null) alerts.addAll(smurfing.detect(graph));
+        if (community != null) alerts.addAll(community.toSuspicions(community.findCommunities(graph)));
+        return alerts;
+    }
+
+    /**
+     * Redução de trabalho e perdas da triagem. Uma conta é positiva no rótulo
+     * quando aparece em alguma transação marcada como lavagem; sem a validação
+     * só dá para contar as positivas descartadas, com ela conta também os
+     * alertas (e os verdadeiros positivos) que o grafo completo teria gerado.
+     */
+    private static List<String> prescreenReport(SketchPrescreen.Result screen, TransactionStore store,
+                                                List<Suspicion> alerts, List<Suspicion> exact) {
+        boolean[] positive = new boolean[store.accountCount()];
+        for (int row = 0; row < store.size; row++) {
+            if (store.laundering[row] != 0) {
+                positive[store.origin[row]] = true;
+                positive[store.destination[row]] = true;
+            }
+        }
+        int positives = 0, positivesDropped = 0;
+        for (int acc = 0; acc < positive.length; acc++) {
+            if (!positive[acc]) continue;
+            positives++;
+            if (!screen.candidate[acc]) positivesDropped++;
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "Sketches: epsilon efetivo=%g, profundidade=%d, %.1f MB", screen.epsilon, screen.depth,
+            screen.sketchBytes / (1024.0 * 1024.0)));
+        report.add(String.format(Locale.ROOT, "Contas candidatas: %d de %d (%.2f%%) | fluxo: %d, smurfing: %d, comunidade: %d",
+            screen.candidates, screen.accounts, 100.0 * screen.candidates / Math.max(1, screen.accounts),
+            screen.flowCandidates, screen.smurfCandidates, screen.communityCandidates));
+        report.add(String.format(Locale.ROOT, "Transações mantidas: %d de %d (%.2f%%)",
+            screen.store.size, store.size, 100.0 * screen.store.size / Math.max(1, store.size)));
+        report.add("Contas positivas no rótulo descartadas: " + positivesDropped + " de " + positives);
+        if (exact == null) return report;
+
+        Map<String, Set<Integer>> kept = new TreeMap<>();
+        for (Suspicion s : alerts) kept.computeIfAbsent(s.reason, r -> new HashSet<>()).add(s.account);
+        Map<String, Set<Integer>> expected = new TreeMap<>();
+        for (Suspicion s : exact) expected.computeIfAbsent(s.reason, r -> new HashSet<>()).add(s.account);
+        for (Map.Entry<String, Set<Integer>> entry : expected.entrySet()) {
+            Set<Integer> found = kept.getOrDefault(entry.getKey(), Collections.emptySet());
+            int lost = 0, truePositivesLost = 0, truePositives = 0;
+            for (int acc : entry.getValue()) {
+                if (positive[acc]) truePositives++;
+                if (found.contains(acc)) continue;
+                lost++;
+                if (positive[acc]) truePositivesLost++;
+            }
+            report.add(String.format("%s: %d de %d contas alertadas perdidas | verdadeiros positivos perdidos: %d de %d",
+                entry.getKey(), lost, entry.getValue().size(), truePositivesLost, truePositives));
+        }
+        return report;
+    }
+
+    private static void savePrescreenReport(List<String> report, String fileName) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
+            report.forEach(pw::println);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar o relatório da triagem: " + e.getMessage());
+        }
+    }
+
+    static void countParse(CsvLoader.Result parse) {
+        PipelineMetrics.add(PipelineMetrics.Counter.ROWS_PARSED, parse.rows);
+        PipelineMetrics.add(PipelineMetrics.Counter.ROWS_REJECTED, parse.rejected);
+    }
+
+    private static String loadTimeLine(DatasetCache.Load load) {
+        String line = "Carga do dataset (" + sourceName(load.source) + "): " + TimeUnit.NANOSECONDS.toMillis(load.nanos) + " ms";
+        if (load.source == DatasetCache.Source.CACHE) {
+            line += " | carga fria (" + sourceName(load.coldSource) + "): " + TimeUnit.NANOSECONDS.toMillis(load.coldNanos) + " ms";
+        }
+        return line;
+    }
+
+    private static String sourceName(DatasetCache.Source source) {
+        switch (source) {
+            case CACHE: return "cache em memória";
+            case SNAPSHOT: return "snapshot binário";
+            default: return "CSV";
+        }
+    }
+
+    static void saveResultsToCsv(List<RiskRanker.Ranked> results, StringDictionary accounts, String fileName) {
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(fileName), ResultExporter.BUFFER_BYTES))) {
+            pw.println("Account,Reason,Score,EvidenceCount");
+            if (results.isEmpty()) {
+                pw.println("Nenhuma fraude detectada,,,");
+            } else {
+                for (RiskRanker.Ranked s : results) {
+                    String reason = "\"" + s.reason().replace("\"", "\"\"") + "\"";
+                    pw.println(accounts.get(s.account) + "," + reason + "," + s.score + "," + s.evidenceCount);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar resultados no CSV: " + e.getMessage());
+        }
+    }
+
+    static void saveCommunitiesToCsv(List<CommunityDetector.Community> communities, StringDictionary accounts, String fileName) {
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(fileName), ResultExporter.BUFFER_BYTES))) {
+            pw.println("CommunityId,K,Size,Edges,Density,EvidenceCount,Accounts");
+            for (CommunityDetector.Community c : communities) {
+                StringBuilder members = new StringBuilder();
+                for (int acc : c.accounts) {
+                    if (members.length() > 0) members.append(';');
+                    members.append(accounts.get(acc));
+                }
+                pw.println(c.id + "," + c.k + "," + c.size() + "," + c.edges + ","
+                    + String.format(Locale.ROOT, "%.4f", c.density()) + "," + c.evidence.length + ",\"" + members + "\"");
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar comunidades no CSV: " + e.getMessage());
+        }
+    }
+
+    static String truncationLine(String detector, int origins, long maxStates) {
+        return detector + ": " + origins + " conta(s) atingiram o limite de " + maxStates + " estados";
+    }
+
+    /**
+     * Os mesmos detectores, um de cada vez, sem métricas; as comunidades que
+     * eles acrescentam de novo são descartadas. Roda depois da passada
+     * concorrente, com a JIT já aquecida, então o speedup sai por baixo.
+     */
+    private static long sequentialWallNanos(List<DetectorExecutor.Task> detectors,
+                                            List<CommunityDetector.Community> communities) {
+        int found = communities.size();
+        PipelineMetrics.setRecording(false);
+        try {
+            return new DetectorExecutor(false, 1, DetectorExecutor.ThreadKind.PLATFORM).run(detectors).wallNanos;
+        } finally {
+            PipelineMetrics.setRecording(true);
+            communities.subList(found, communities.size()).clear();
+        }
+    }
+
+    private static String detectorWallTimeLine(DetectorExecutor.Outcome outcome) {
+        String line = String.format("Tempo de Parede dos Detectores (%s): %d ms",
+            outcome.mode, TimeUnit.NANOSECONDS.toMillis(outcome.wallNanos));
+        if (outcome.sequentialWallNanos >= 0) {
+            line += String.format(" | Speedup sobre a execução sequencial (%d ms): %.2fx",
+                TimeUnit.NANOSECONDS.toMillis(outcome.sequentialWallNanos), outcome.speedup());
+        } else {
+            line += " | Speedup sobre a execução sequencial: não medido";
+        }
+        return line;
+    }
+
+    private static String effectiveParallelismLine(DetectorExecutor.Outcome outcome) {
+        return String.format("Paralelismo efetivo (soma dos detectores / parede): %.2fx", outcome.effectiveParallelism());
+    }
+
+    static void saveExecutionTimes(Map<String, Long> times, long totalTime, DetectorExecutor.Outcome outcome,
+                                           String loadLine, String fileName) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
+            pw.println(loadLine);
+            pw.println("--- TEMPO DE EXECUÇÃO DOS ALGORITMOS ---");
+            if (times.isEmpty()){
+                pw.println("Nenhum algoritmo foi executado para esta opção.");
+            } else {
+                for (Map.Entry<String, Long> entry : times.entrySet()) {
+                    pw.println(entry.getKey() + ": " + entry.getValue() + " ms");
+                }
+            }
+            pw.println("--------------------------------------");
+            pw.println("Tempo de Execução Total dos Algoritmos: " + totalTime + " ms");
+            pw.println(detectorWallTimeLine(outcome));
+            pw.println(effectiveParallelismLine(outcome));
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar tempos de execução: " + e.getMessage());
+        }
+    }
+
+    private static void saveMetrics(String fileName) {
+        try {
+            PipelineMetrics.write(fileName);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar métricas: " + e.getMessage());
+        }
+    }
+}
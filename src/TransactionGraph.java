@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Índice imutável do grafo de transações, construído uma vez por dataset e
+ * compartilhado por todos os detectores.
+ *
+ * Todas as listas usam layout CSR: as arestas da conta {@code a} ficam em
+ * {@code rows[start[a]] .. rows[start[a + 1] - 1]}. Arestas de saída e de
+ * entrada são ordenadas por timestamp (empates na ordem do arquivo); as
+ * transações incidentes ficam na ordem do arquivo e servem de evidência.
+ */
+final class TransactionGraph implements EdgeIndex {
+    final TransactionStore store;
+    final int accountCount;
+
+    final int[] outStart;
+    final int[] outRows;
+    final int[] inStart;
+    final int[] inRows;
+    /** Transações em que a conta é origem ou destino, na ordem do arquivo. */
+    final int[] txStart;
+    final int[] txRows;
+    /** Vizinhos distintos no grafo não direcionado (auto-laços incluídos uma vez). */
+    final int[] nbrStart;
+    final int[] nbrs;
+
+    TransactionGraph(TransactionStore store) {
+        this(store, store.accountCount());
+    }
+
+    /**
+     * Índice sobre um store cujas contas não vêm do dicionário, como o de uma
+     * partição, em que os IDs são locais e vão de 0 a accountCount - 1.
+     */
+    TransactionGraph(TransactionStore store, int accountCount) {
+        this.store = store;
+        this.accountCount = accountCount;
+        int n = accountCount, m = store.size;
+
+        outStart = new int[n + 1];
+        outRows = groupRows(store.origin, null, m, n, outStart);
+        sortByTime(outStart, outRows, store.timestamp);
+        inStart = new int[n + 1];
+        inRows = groupRows(store.destination, null, m, n, inStart);
+        sortByTime(inStart, inRows, store.timestamp);
+        txStart = new int[n + 1];
+        txRows = groupRows(store.origin, store.destination, m, n, txStart);
+
+        // arestas não direcionadas distintas codificadas como (menor << 32 | maior)
+        long[] pairs = new long[m];
+        for (int i = 0; i < m; i++) {
+            int a = Math.min(store.origin[i], store.destination[i]);
+            int b = Math.max(store.origin[i], store.destination[i]);
+            pairs[i] = ((long) a << 32) | b;
+        }
+        Arrays.sort(pairs);
+        nbrStart = new int[n + 1];
+        int distinct = 0;
+        for (int i = 0; i < m; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) continue;
+            pairs[distinct++] = pairs[i];
+            int a = (int) (pairs[i] >>> 32), b = (int) pairs[i];
+            nbrStart[a + 1]++;
+            if (a != b) nbrStart[b + 1]++;
+        }
+        for (int v = 0; v < n; v++) nbrStart[v + 1] += nbrStart[v];
+        nbrs = new int[nbrStart[n]];
+        int[] next = Arrays.copyOf(nbrStart, n);
+        for (int i = 0; i < distinct; i++) {
+            int a = (int) (pairs[i] >>> 32), b = (int) pairs[i];
+            nbrs[next[a]++] = b;
+            if (a != b) nbrs[next[b]++] = a;
+        }
+    }
+
+    int outDegree(int account) {
+        return outStart[account + 1] - outStart[account];
+    }
+
+    int inDegree(int account) {
+        return inStart[account + 1] - inStart[account];
+    }
+
+    int neighbourCount(int account) {
+        return nbrStart[account + 1] - nbrStart[account];
+    }
+
+    @Override
+    public int accountCount() {
+        return accountCount;
+    }
+
+    @Override
+    public int firstOut(int account) {
+        return outStart[account];
+    }
+
+    @Override
+    public int endOut(int account) {
+        return outStart[account + 1];
+    }
+
+    @Override
+    public int outRow(int p) {
+        return outRows[p];
+    }
+
+    @Override
+    public int outTarget(int p) {
+        return store.destination[outRows[p]];
+    }
+
+    @Override
+    public int outTime(int p) {
+        return store.timestamp[outRows[p]];
+    }
+
+    @Override
+    public double outAmount(int p) {
+        return store.amount[outRows[p]];
+    }
+
+    @Override
+    public int firstNeighbour(int account) {
+        return nbrStart[account];
+    }
+
+    @Override
+    public int endNeighbour(int account) {
+        return nbrStart[account + 1];
+    }
+
+    @Override
+    public int neighbour(int p) {
+        return nbrs[p];
+    }
+
+    /** Cópia das transações incidentes na conta, na ordem do arquivo. */
+    int[] transactionsOf(int account) {
+        return Arrays.copyOfRange(txRows, txStart[account], txStart[account + 1]);
+    }
+
+    /**
+     * Agrupa as linhas por conta (counting sort estável). Com {@code second}
+     * não nulo, cada linha entra também no grupo da segunda chave, exceto
+     * quando as duas chaves coincidem.
+     */
+    private static int[] groupRows(int[] first, int[] second, int size, int n, int[] start) {
+        for (int i = 0; i < size; i++) {
+            start[first[i] + 1]++;
+            if (second != null && second[i] != first[i]) start[second[i] + 1]++;
+        }
+        for (int a = 0; a < n; a++) start[a + 1] += start[a];
+        int[] rows = new int[start[n]];
+        int[] next = Arrays.copyOf(start, n);
+        for (int i = 0; i < size; i++) {
+            rows[next[first[i]]++] = i;
+            if (second != null && second[i] != first[i]) rows[next[second[i]]++] = i;
+        }
+        return rows;
+    }
+
+    private static void sortByTime(int[] start, int[] rows, int[] timestamp) {
+        long[] keys = new long[16];
+        for (int a = 0; a + 1 < start.length; a++) {
+            int from = start[a], k = start[a + 1] - from;
+            if (k < 2) continue;
+            if (keys.length < k) keys = new long[k];
+            for (int j = 0; j < k; j++) {
+                int row = rows[from + j];
+                keys[j] = ((long) timestamp[row] << 32) | row;
+            }
+            Arrays.sort(keys, 0, k);
+            for (int j = 0; j < k; j++) rows[from + j] = (int) keys[j];
+        }
+    }
+}
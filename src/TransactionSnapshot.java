@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato binário compacto de um {@link TransactionStore}, gravado ao lado do
+ * CSV de origem ({@code <arquivo>.csv.snap}).
+ *
+ * Layout (little-endian): cabeçalho com magic, versão, tamanho e data de
+ * modificação do CSV e número de linhas; os quatro dicionários (contagem,
+ * offsets e bytes UTF-8); e as colunas primitivas em sequência, terminando no
+ * rótulo "Is Laundering" (um byte por linha). A leitura mapeia
+ * o arquivo em segmentos e copia as colunas em bloco, sem nenhuma
+ * interpretação de texto.
+ * Um snapshot cujo CSV mudou de tamanho ou de data é ignorado.
+ */
+final class TransactionSnapshot {
+    /** "TXSNAP01" */
+    private static final long MAGIC = 0x5458534E41503031L;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8 + 4 + 8 + 8 + 4;
+
+    private TransactionSnapshot() {
+    }
+
+    static Path pathFor(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".snap");
+    }
+
+    static void write(TransactionStore store, Path csv) throws IOException {
+        Path target = pathFor(csv);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Dictionary[] dictionaries = {
+            encode(store.accounts), encode(store.banks), encode(store.currencies), encode(store.paymentFormats)
+        };
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Cursor out = new Cursor(ch, FileChannel.MapMode.READ_WRITE);
+            out.next(HEADER_BYTES).putLong(MAGIC).putInt(VERSION)
+               .putLong(Files.size(csv)).putLong(Files.getLastModifiedTime(csv).toMillis())
+               .putInt(store.size);
+            for (Dictionary dict : dictionaries) {
+                out.next(4).putInt(dict.offsets.length - 1);
+                out.copy(dict.offsets.length, 4, (seg, from, count) -> seg.asIntBuffer().put(dict.offsets, from, count));
+                out.copy(dict.blob.length, 1, (seg, from, count) -> seg.put(dict.blob, from, count));
+            }
+            int n = store.size;
+            out.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().put(store.origin, from, count));
+            out.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().put(store.destination, from, count));
+            out.copy(n, 8, (seg, from, count) -> seg.asDoubleBuffer().put(store.amount, from, count));
+            out.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().put(store.timestamp, from, count));
+            out.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().put(store.fromBank, from, count));
+            out.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().put(store.toBank, from, count));
+            out.copy(n, 2, (seg, from, count) -> seg.asShortBuffer().put(store.currency, from, count));
+            out.copy(n, 2, (seg, from, count) -> seg.asShortBuffer().put(store.paymentFormat, from, count));
+            out.copy(n, 1, (seg, from, count) -> seg.put(store.laundering, from, count));
+            out.force();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o snapshot do CSV, ou devolve null se ele não existe, está em outro
+     * formato ou foi gerado a partir de outra versão do CSV.
+     */
+    static TransactionStore read(Path csv) throws IOException {
+        Path source = pathFor(csv);
+        if (!Files.isRegularFile(source)) return null;
+        try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) return null;
+            Cursor in = new Cursor(ch, FileChannel.MapMode.READ_ONLY);
+            ByteBuffer header = in.next(HEADER_BYTES);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) return null;
+            long csvSize = header.getLong(), csvModified = header.getLong();
+            if (csvSize != Files.size(csv) || csvModified != Files.getLastModifiedTime(csv).toMillis()) return null;
+            int n = header.getInt();
+
+            StringDictionary accounts = getDictionary(in);
+            StringDictionary banks = getDictionary(in);
+            StringDictionary currencies = getDictionary(in);
+            StringDictionary paymentFormats = getDictionary(in);
+
+            int[] origin = new int[n], destination = new int[n], timestamp = new int[n];
+            int[] fromBank = new int[n], toBank = new int[n];
+            double[] amount = new double[n];
+            short[] currency = new short[n], paymentFormat = new short[n];
+            byte[] laundering = new byte[n];
+            in.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().get(origin, from, count));
+            in.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().get(destination, from, count));
+            in.copy(n, 8, (seg, from, count) -> seg.asDoubleBuffer().get(amount, from, count));
+            in.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().get(timestamp, from, count));
+            in.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().get(fromBank, from, count));
+            in.copy(n, 4, (seg, from, count) -> seg.asIntBuffer().get(toBank, from, count));
+            in.copy(n, 2, (seg, from, count) -> seg.asShortBuffer().get(currency, from, count));
+            in.copy(n, 2, (seg, from, count) -> seg.asShortBuffer().get(paymentFormat, from, count));
+            in.copy(n, 1, (seg, from, count) -> seg.get(laundering, from, count));
+            return new TransactionStore(accounts, banks, currencies, paymentFormats, n,
+                origin, destination, amount, timestamp, fromBank, toBank, currency, paymentFormat, laundering);
+        }
+    }
+
+    /**
+     * Posição corrente no arquivo do snapshot. Cada trecho é mapeado à parte,
+     * em segmentos de até 1 GB como as colunas de {@link PartitionedAnalysis},
+     * então o arquivo pode passar de 2 GB.
+     */
+    private static final class Cursor {
+        private static final long SEGMENT_BYTES = 1L << 30;
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final List<MappedByteBuffer> mapped = new ArrayList<>();
+        private long position;
+
+        Cursor(FileChannel channel, FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.mode = mode;
+        }
+
+        /** Mapeia os próximos bytes (no máximo um segmento) e avança. */
+        ByteBuffer next(long bytes) throws IOException {
+            if (mode == FileChannel.MapMode.READ_ONLY && position + bytes > channel.size()) {
+                throw new IOException("snapshot truncado");
+            }
+            MappedByteBuffer buf = channel.map(mode, position, bytes);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (mode == FileChannel.MapMode.READ_WRITE) mapped.add(buf);
+            position += bytes;
+            return buf;
+        }
+
+        /** Copia count elementos de elementBytes bytes, um segmento por vez. */
+        void copy(int count, int elementBytes, SegmentCopy op) throws IOException {
+            int perSegment = (int) (SEGMENT_BYTES / elementBytes);
+            for (int from = 0; from < count; from += perSegment) {
+                int n = Math.min(perSegment, count - from);
+                op.copy(next((long) n * elementBytes), from, n);
+            }
+        }
+
+        void force() {
+            for (MappedByteBuffer buf : mapped) buf.force();
+        }
+    }
+
+    private interface SegmentCopy {
+        void copy(ByteBuffer segment, int from, int count);
+    }
+
+    /** Dicionário codificado: offsets de cada valor em blob, em UTF-8. */
+    private static final class Dictionary {
+        final int[] offsets;
+        final byte[] blob;
+
+        Dictionary(int[] offsets, byte[] blob) {
+            this.offsets = offsets;
+            this.blob = blob;
+        }
+    }
+
+    private static Dictionary encode(StringDictionary dict) throws IOException {
+        byte[][] values = new byte[dict.size()][];
+        int[] offsets = new int[values.length + 1];
+        long total = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dict.get(i).getBytes(StandardCharsets.UTF_8);
+            total += values[i].length;
+            if (total > Integer.MAX_VALUE) throw new IOException("Dicionário acima de 2 GB não é suportado");
+            offsets[i + 1] = (int) total;
+        }
+        byte[] blob = new byte[(int) total];
+        for (int i = 0; i < values.length; i++) System.arraycopy(values[i], 0, blob, offsets[i], values[i].length);
+        return new Dictionary(offsets, blob);
+    }
+
+    private static StringDictionary getDictionary(Cursor in) throws IOException {
+        int count = in.next(4).getInt();
+        if (count < 0) throw new IOException("snapshot corrompido");
+        int[] offsets = new int[count + 1];
+        in.copy(offsets.length, 4, (seg, from, n) -> seg.asIntBuffer().get(offsets, from, n));
+        byte[] blob = new byte[offsets[count]];
+        in.copy(blob.length, 1, (seg, from, n) -> seg.get(blob, from, n));
+        StringDictionary dict = new StringDictionary();
+        for (int i = 0; i < count; i++) {
+            dict.intern(new String(blob, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+        }
+        return dict;
+    }
+}
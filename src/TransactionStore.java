@@ -0,0 +1,162 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Armazenamento colunar das transações carregadas de um dataset.
+ *
+ * Cada conta é internada uma única vez em um ID inteiro denso; as colunas são
+ * arrays primitivos paralelos indexados pela linha da transação. Os IDs só
+ * voltam a ser strings no momento da saída.
+ */
+final class TransactionStore {
+    final StringDictionary accounts;
+    final StringDictionary banks;
+    final StringDictionary currencies;
+    final StringDictionary paymentFormats;
+
+    final int size;
+    final int[] origin;
+    final int[] destination;
+    final double[] amount;
+    /** Minutos desde a época (UTC), suficiente para a resolução yyyy/MM/dd HH:mm. */
+    final int[] timestamp;
+    final int[] fromBank;
+    final int[] toBank;
+    final short[] currency;
+    final short[] paymentFormat;
+    /** Rótulo "Is Laundering" do dataset (1 = lavagem). */
+    final byte[] laundering;
+
+    TransactionStore(StringDictionary accounts, StringDictionary banks, StringDictionary currencies,
+                     StringDictionary paymentFormats, int size, int[] origin, int[] destination,
+                     double[] amount, int[] timestamp, int[] fromBank, int[] toBank,
+                     short[] currency, short[] paymentFormat, byte[] laundering) {
+        this.accounts = accounts;
+        this.banks = banks;
+        this.currencies = currencies;
+        this.paymentFormats = paymentFormats;
+        this.size = size;
+        this.origin = origin;
+        this.destination = destination;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.fromBank = fromBank;
+        this.toBank = toBank;
+        this.currency = currency;
+        this.paymentFormat = paymentFormat;
+        this.laundering = laundering;
+    }
+
+    int accountCount() {
+        return accounts.size();
+    }
+
+    String accountId(int id) {
+        return accounts.get(id);
+    }
+
+    /** Estimativa do espaço ocupado em heap: colunas mais os dicionários. */
+    long estimatedBytes() {
+        long columns = (long) size * (4 + 4 + 8 + 4 + 4 + 4 + 2 + 2 + 1);
+        long dictionaries = 64L * (accounts.size() + banks.size() + currencies.size() + paymentFormats.size());
+        return columns + dictionaries;
+    }
+
+    LocalDateTime timestampOf(int row) {
+        return toDateTime(timestamp[row]);
+    }
+
+    static short shortCode(int code) {
+        if (code > Short.MAX_VALUE) {
+            throw new IllegalStateException("Dicionário excedeu " + Short.MAX_VALUE + " valores distintos");
+        }
+        return (short) code;
+    }
+
+    static int toEpochMinute(LocalDateTime t) {
+        return (int) Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime toDateTime(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Acumula linhas em arrays que crescem por duplicação.
+     */
+    static final class Builder {
+        final StringDictionary accounts = new StringDictionary();
+        final StringDictionary banks = new StringDictionary();
+        final StringDictionary currencies = new StringDictionary();
+        final StringDictionary paymentFormats = new StringDictionary();
+
+        private int size;
+        private int[] origin;
+        private int[] destination;
+        private double[] amount;
+        private int[] timestamp;
+        private int[] fromBank;
+        private int[] toBank;
+        private short[] currency;
+        private short[] paymentFormat;
+        private byte[] laundering;
+
+        Builder() {
+            this(1024);
+        }
+
+        Builder(int initialCapacity) {
+            int cap = Math.max(16, initialCapacity);
+            origin = new int[cap];
+            destination = new int[cap];
+            amount = new double[cap];
+            timestamp = new int[cap];
+            fromBank = new int[cap];
+            toBank = new int[cap];
+            currency = new short[cap];
+            paymentFormat = new short[cap];
+            laundering = new byte[cap];
+        }
+
+        void add(String originAccount, String destinationAccount, double value, LocalDateTime time,
+                 String originBank, String destinationBank, String currencyName, String format, boolean isLaundering) {
+            ensureCapacity(size + 1);
+            origin[size] = accounts.intern(originAccount);
+            destination[size] = accounts.intern(destinationAccount);
+            amount[size] = value;
+            timestamp[size] = toEpochMinute(time);
+            fromBank[size] = banks.intern(originBank);
+            toBank[size] = banks.intern(destinationBank);
+            currency[size] = shortCode(currencies.intern(currencyName));
+            paymentFormat[size] = shortCode(paymentFormats.intern(format));
+            laundering[size] = (byte) (isLaundering ? 1 : 0);
+            size++;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= origin.length) return;
+            int cap = Math.max(needed, origin.length * 2);
+            origin = Arrays.copyOf(origin, cap);
+            destination = Arrays.copyOf(destination, cap);
+            amount = Arrays.copyOf(amount, cap);
+            timestamp = Arrays.copyOf(timestamp, cap);
+            fromBank = Arrays.copyOf(fromBank, cap);
+            toBank = Arrays.copyOf(toBank, cap);
+            currency = Arrays.copyOf(currency, cap);
+            paymentFormat = Arrays.copyOf(paymentFormat, cap);
+            laundering = Arrays.copyOf(laundering, cap);
+        }
+
+        int size() {
+            return size;
+        }
+
+        TransactionStore build() {
+            return new TransactionStore(accounts, banks, currencies, paymentFormats, size,
+                Arrays.copyOf(origin, size), Arrays.copyOf(destination, size), Arrays.copyOf(amount, size),
+                Arrays.copyOf(timestamp, size), Arrays.copyOf(fromBank, size), Arrays.copyOf(toBank, size),
+                Arrays.copyOf(currency, size), Arrays.copyOf(paymentFormat, size), Arrays.copyOf(laundering, size));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Os caminhos rápidos de timestamp e valor do CsvLoader contra o que o JDK
+ * devolve para o mesmo texto: LocalDateTime.parse com o padrão do dataset e
+ * Double.parseDouble. Um texto que o JDK recusa tem que virar linha rejeitada.
+ */
+class CsvLoaderTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
+    private static final String HEADER = "Timestamp,From Bank,Account,To Bank,Account,Amount Received,"
+        + "Receiving Currency,Amount Paid,Payment Currency,Payment Format,Is Laundering";
+    private static final String VALID_TIMESTAMP = "2022/09/01 00:21";
+    private static final String VALID_AMOUNT = "1858.96";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void timestampFastPathMatchesDateTimeFormatter() throws IOException {
+        List<String> values = new ArrayList<>(Arrays.asList(
+            "1970/01/01 00:00", "1969/12/31 23:59", "2000/02/29 23:59", "1900/02/28 12:00", "1900/02/29 12:00",
+            "2024/02/29 00:00", "2023/02/29 00:00", "2023/04/31 10:10", "2022/12/31 23:59", "0001/01/01 00:00",
+            "0000/01/01 00:00", "2022/09/01 24:00", "2022/09/01 23:60", "2022/13/01 00:00", "2022/00/10 00:00",
+            "2022/09/00 00:00", "2022/9/01 00:21", "2022-09-01 00:21", "2022/09/01T00:21", "2022/09/01 0a:21",
+            "  2022/09/01 00:21 ", "2022/09/01 00:21:00", "", "Timestamp"));
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            values.add(String.format("%04d/%02d/%02d %02d:%02d", 1600 + random.nextInt(800), random.nextInt(14),
+                random.nextInt(33), random.nextInt(25), random.nextInt(61)));
+        }
+
+        Map<String, Integer> expected = new HashMap<>();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            String account = "T" + i;
+            lines.add(line(values.get(i), account, VALID_AMOUNT));
+            Integer minute = jdkTimestamp(values.get(i));
+            if (minute != null) expected.put(account, minute);
+        }
+
+        TransactionStore store = load(lines, values.size() - expected.size());
+        for (int row = 0; row < store.size; row++) {
+            String account = store.accountId(store.origin[row]);
+            String text = values.get(Integer.parseInt(account.substring(1)));
+            assertEquals(expected.get(account), store.timestamp[row], "timestamp \"" + text + "\"");
+        }
+    }
+
+    @Test
+    void amountFastPathMatchesParseDouble() throws IOException {
+        List<String> values = new ArrayList<>(Arrays.asList(
+            "0", "-0", "+0", "0.0", "-0.0", "1", "+1.5", "-1.5", ".5", "5.", "-.5", "0.1", "0.2", "0.3",
+            "1858.96", "12.32", "0.30000000000000004", "123456789012345", "1234567890123456", "999999999999999",
+            "9999999999999999", "9007199254740993", "0.000000000000001", "0.0000000000000000000001",
+            "0.00000000000000000000001", "1.0000000000000000000000001", "1e3", "1E-3", "0x1p3", "1.5d", "2f",
+            "NaN", "Infinity", "-Infinity", "  42.10 ", "", "-", "+", ".", "abc", "1.2.3", "1-2", "--1", "1 2"));
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int sign = random.nextInt(4);
+            if (sign == 0) sb.append('-');
+            else if (sign == 1) sb.append('+');
+            int integerDigits = random.nextInt(12), fractionDigits = random.nextInt(i % 10 == 0 ? 26 : 8);
+            for (int d = 0; d < integerDigits; d++) sb.append((char) ('0' + random.nextInt(10)));
+            if (fractionDigits > 0 || integerDigits == 0) sb.append('.');
+            for (int d = 0; d < fractionDigits; d++) sb.append((char) ('0' + random.nextInt(10)));
+            values.add(sb.toString());
+        }
+
+        Map<String, Double> expected = new HashMap<>();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            String account = "V" + i;
+            lines.add(line(VALID_TIMESTAMP, account, values.get(i)));
+            Double amount = jdkAmount(values.get(i));
+            if (amount != null) expected.put(account, amount);
+        }
+
+        TransactionStore store = load(lines, values.size() - expected.size());
+        for (int row = 0; row < store.size; row++) {
+            String account = store.accountId(store.origin[row]);
+            String text = values.get(Integer.parseInt(account.substring(1)));
+            // compara os bits: -0.0 e 0.0 também têm que coincidir
+            assertEquals(Double.doubleToLongBits(expected.get(account)), Double.doubleToLongBits(store.amount[row]),
+                "valor \"" + text + "\": " + expected.get(account) + " != " + store.amount[row]);
+        }
+    }
+
+    @Test
+    void calendarHelpersMatchJavaTime() {
+        for (LocalDate d = LocalDate.of(1599, 1, 1); d.isBefore(LocalDate.of(2401, 1, 1)); d = d.plusDays(1)) {
+            assertEquals(d.toEpochDay(), CsvLoader.epochDay(d.getYear(), d.getMonthValue(), d.getDayOfMonth()), d.toString());
+            assertEquals(d.lengthOfMonth(), CsvLoader.monthLength(d.getYear(), d.getMonthValue()), d.toString());
+        }
+    }
+
+    private TransactionStore load(List<String> lines, long rejected) throws IOException {
+        Path csv = dir.resolve("parse.csv");
+        List<String> content = new ArrayList<>();
+        content.add(HEADER);
+        content.addAll(lines);
+        Files.write(csv, content, StandardCharsets.UTF_8);
+        CsvLoader.Result result = new CsvLoader(4).load(csv);
+        assertEquals(rejected, result.rejected, "linhas rejeitadas");
+        assertEquals(lines.size() - rejected, result.store.size, "linhas aceitas");
+        return result.store;
+    }
+
+    private static String line(String timestamp, String account, String amount) {
+        return timestamp + ",3402," + account + ",3402,80021DAD0," + amount + ",US Dollar," + amount
+            + ",US Dollar,Reinvestment,0";
+    }
+
+    /** O que o caminho lento devolveria, ou null se a linha deve ser rejeitada. */
+    private static Integer jdkTimestamp(String text) {
+        try {
+            return TransactionStore.toEpochMinute(LocalDateTime.parse(text.trim(), FORMATTER));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Double jdkAmount(String text) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
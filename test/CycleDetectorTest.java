@@ -0,0 +1,193 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CycleDetector sobre grafos montados à mão: ciclos que têm que ser achados,
+ * ciclos que quebram a ordem temporal ou a tolerância de valor, componentes
+ * fortemente conexos e ciclos cujos saltos caem no mesmo minuto.
+ */
+class CycleDetectorTest {
+    private static final int MAX_LENGTH = 6;
+    private static final long TIME_WINDOW_MINUTES = 60;
+    private static final double TOLERANCE = 0.05;
+
+    @Test
+    void findsTwoAndThreeCycles() {
+        Graph graph = new Graph(4)
+            .add(0, 1, 0, 100.0)     // linha 0: ciclo 0 -> 1 -> 0
+            .add(1, 0, 10, 100.0)    // linha 1
+            .add(1, 2, 20, 500.0)    // linha 2: ciclo 1 -> 2 -> 3 -> 1
+            .add(2, 3, 30, 510.0)    // linha 3
+            .add(3, 1, 40, 505.0);   // linha 4
+        assertEquals(List.of(
+            "0|0,1", "1|0,1,2,3,4", "2|2,3,4", "3|2,3,4"), detect(graph));
+    }
+
+    @Test
+    void rejectsCycleOutOfTimeOrder() {
+        Graph graph = new Graph(3)
+            .add(0, 1, 100, 100.0)
+            .add(1, 2, 50, 100.0)
+            .add(2, 0, 200, 100.0);
+        assertEquals(List.of(), detect(graph));
+    }
+
+    @Test
+    void rejectsHopAfterTimeWindow() {
+        Graph graph = new Graph(2)
+            .add(0, 1, 0, 100.0)
+            .add(1, 0, (int) TIME_WINDOW_MINUTES + 1, 100.0);
+        assertEquals(List.of(), detect(graph));
+    }
+
+    @Test
+    void rejectsCycleOutsideAmountTolerance() {
+        Graph graph = new Graph(3)
+            .add(0, 1, 0, 100.0)
+            .add(1, 2, 1, 104.0)
+            .add(2, 0, 2, 110.0);
+        assertEquals(List.of(), detect(graph));
+    }
+
+    @Test
+    void doesNotCloseCycleAcrossComponents() {
+        Graph graph = new Graph(4)
+            .add(0, 1, 0, 100.0)     // componente {0, 1}
+            .add(1, 0, 1, 100.0)
+            .add(2, 3, 10, 100.0)    // componente {2, 3}
+            .add(3, 2, 11, 100.0)
+            .add(1, 2, 5, 100.0);    // ponte de mão única, linha 4
+        int[] component = CycleDetector.stronglyConnected(graph);
+        assertEquals(component[0], component[1]);
+        assertEquals(component[2], component[3]);
+        assertNotEquals(component[0], component[2]);
+        assertEquals(List.of("0|0,1", "1|0,1", "2|2,3", "3|2,3"), detect(graph));
+    }
+
+    /** Um anel longo exercita a pilha explícita do Tarjan. */
+    @Test
+    void longRingIsOneComponent() {
+        int n = 200_000;
+        Graph graph = new Graph(n);
+        for (int acc = 0; acc < n; acc++) graph.add(acc, (acc + 1) % n, acc, 100.0);
+        int[] component = CycleDetector.stronglyConnected(graph);
+        for (int acc = 1; acc < n; acc++) assertEquals(component[0], component[acc], "conta " + acc);
+    }
+
+    @Test
+    void sameMinuteCycleIsEnumeratedOnce() {
+        Graph graph = new Graph(3)
+            .add(1, 2, 5, 100.0)
+            .add(2, 0, 5, 100.0)
+            .add(0, 1, 5, 100.0)
+            .add(0, 2, 7, 300.0)     // ciclo 0 -> 2 -> 0, os dois saltos no minuto 7
+            .add(2, 0, 7, 300.0);
+        PipelineMetrics.reset();
+        assertEquals(List.of("0|0,1,2,3,4", "1|0,1,2", "2|0,1,2,3,4"), detect(graph));
+        assertEquals(2, PipelineMetrics.get(PipelineMetrics.Counter.CYCLES_FOUND));
+    }
+
+    /** O primeiro salto na linha de cima não pode esconder um ciclo que só fecha minutos depois. */
+    @Test
+    void findsCycleWhoseFirstHopHasLaterRow() {
+        Graph graph = new Graph(3)
+            .add(1, 2, 0, 100.0)     // linha 0: 1 -> 2, mesmo minuto do primeiro salto
+            .add(0, 1, 0, 100.0)     // linha 1: primeiro salto do ciclo 0 -> 1 -> 2 -> 0
+            .add(2, 0, 10, 100.0);   // linha 2
+        assertEquals(List.of("0|0,1,2", "1|0,1,2", "2|0,1,2"), detect(graph));
+    }
+
+    @Test
+    void evidenceRowsAreSortedAndDistinct() {
+        Graph graph = new Graph(2)
+            .add(1, 0, 3, 100.0)
+            .add(0, 1, 1, 100.0)
+            .add(1, 0, 2, 100.0);
+        List<Suspicion> alerts = new CycleDetector(MAX_LENGTH, TIME_WINDOW_MINUTES, TOLERANCE).detect(graph);
+        assertEquals(2, alerts.size(), "um alerta por conta");
+        for (Suspicion s : alerts) {
+            assertEquals("Ciclo temporal detectado", s.reason);
+            assertEquals(4, s.score);
+            assertArrayEquals(new int[] {0, 1, 2}, s.evidence);
+        }
+    }
+
+    /** "conta|linhas" de cada alerta, em ordem. */
+    private static List<String> detect(EdgeIndex graph) {
+        List<String> res = new ArrayList<>();
+        for (Suspicion s : new CycleDetector(MAX_LENGTH, TIME_WINDOW_MINUTES, TOLERANCE).detect(graph)) {
+            StringBuilder sb = new StringBuilder().append(s.account).append('|');
+            for (int i = 0; i < s.evidence.length; i++) sb.append(i == 0 ? "" : ",").append(s.evidence[i]);
+            res.add(sb.toString());
+        }
+        Collections.sort(res);
+        return res;
+    }
+
+    /**
+     * EdgeIndex mínimo: a linha de cada transação é a ordem de inserção e as
+     * saídas de cada conta ficam ordenadas por (minuto, linha).
+     */
+    private static final class Graph implements EdgeIndex {
+        private final int accounts;
+        private int size;
+        private int[] origin = new int[16], target = new int[16], time = new int[16];
+        private double[] amount = new double[16];
+        private int[] first, order;
+
+        Graph(int accounts) {
+            this.accounts = accounts;
+        }
+
+        Graph add(int from, int to, int minute, double value) {
+            if (size == origin.length) {
+                origin = Arrays.copyOf(origin, size * 2);
+                target = Arrays.copyOf(target, size * 2);
+                time = Arrays.copyOf(time, size * 2);
+                amount = Arrays.copyOf(amount, size * 2);
+            }
+            origin[size] = from; target[size] = to; time[size] = minute; amount[size] = value;
+            size++;
+            first = null;
+            return this;
+        }
+
+        private int[] order() {
+            if (first == null) {
+                Integer[] rows = new Integer[size];
+                for (int r = 0; r < size; r++) rows[r] = r;
+                Arrays.sort(rows, (a, b) -> origin[a] != origin[b] ? Integer.compare(origin[a], origin[b])
+                    : time[a] != time[b] ? Integer.compare(time[a], time[b]) : Integer.compare(a, b));
+                order = new int[size];
+                first = new int[accounts + 1];
+                for (int p = 0; p < size; p++) {
+                    order[p] = rows[p];
+                    first[origin[rows[p]] + 1]++;
+                }
+                for (int acc = 0; acc < accounts; acc++) first[acc + 1] += first[acc];
+            }
+            return order;
+        }
+
+        @Override public int accountCount() { return accounts; }
+        @Override public int firstOut(int account) { order(); return first[account]; }
+        @Override public int endOut(int account) { order(); return first[account + 1]; }
+        @Override public int outRow(int p) { return order()[p]; }
+        @Override public int outTarget(int p) { return target[order()[p]]; }
+        @Override public int outTime(int p) { return time[order()[p]]; }
+        @Override public double outAmount(int p) { return amount[order()[p]]; }
+
+        // o detector de ciclos não usa a vizinhança não direcionada
+        @Override public int firstNeighbour(int account) { throw new UnsupportedOperationException(); }
+        @Override public int endNeighbour(int account) { throw new UnsupportedOperationException(); }
+        @Override public int neighbour(int p) { throw new UnsupportedOperationException(); }
+    }
+}
@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * A análise fora da memória tem que produzir os mesmos alertas e comunidades
+ * da análise em memória: mesmos IDs de conta, motivos, scores e linhas de
+ * evidência. Os detectores usam os valores padrão do pipeline.
+ */
+class PartitionedAnalysisTest {
+    private static final String[] SAMPLES = {
+        "fraud_dataset.csv", "full_dataset.csv", "not_fraud_dataset.csv", "small_not_fraud_dataset.csv"
+    };
+
+    private static final long SMURF_WINDOW_MINUTES = 6000;
+    private static final double SMURF_UNIT_LIMIT = 20000.0;
+    private static final int SMURF_MIN_TX = 5;
+    private static final int LAYERING_MAX_DEPTH = 4;
+    private static final double LAYERING_DELTA = 5000.0;
+    private static final long LAYERING_TIME_WINDOW_MINUTES = 2880;
+    private static final int DENSE_MIN_DEGREE = 2;
+    private static final int CYCLE_MAX_LENGTH = 6;
+    private static final long CYCLE_TIME_WINDOW_MINUTES = 2880;
+    private static final double TOLERANCE = 0.05;
+
+    @TempDir
+    Path dir;
+
+    static String[] samples() {
+        return SAMPLES;
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void sampleDatasetGivesSameAlerts(String name) throws IOException {
+        assertSameAnalysis(Paths.get(name));
+    }
+
+    /** As amostras juntas passam do orçamento mínimo e forçam várias partições. */
+    @Test
+    void concatenatedSamplesSpanSeveralPartitions() throws IOException {
+        Path csv = dir.resolve("all_samples.csv");
+        for (String name : SAMPLES) {
+            Files.write(csv, Files.readAllBytes(Paths.get(name)), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        PartitionedAnalysis.Result partitioned = assertSameAnalysis(csv);
+        assertTrue(partitioned.partitions > 1, "partições: " + partitioned.partitions);
+    }
+
+    private PartitionedAnalysis.Result assertSameAnalysis(Path csv) throws IOException {
+        TransactionStore store = new CsvLoader(2).load(csv).store;
+        TransactionGraph graph = new TransactionGraph(store);
+        CommunityDetector inMemoryCommunity = community();
+        List<CommunityDetector.Community> communities = inMemoryCommunity.findCommunities(graph);
+        List<Suspicion> alerts = new ArrayList<>();
+        alerts.addAll(new FlowChecker().check(graph));
+        alerts.addAll(smurfing().detect(graph));
+        alerts.addAll(layering().detect(graph));
+        alerts.addAll(inMemoryCommunity.toSuspicions(communities));
+        alerts.addAll(cycles().detect(graph));
+
+        // 1 MB é o menor orçamento aceito; com ele o spill e os índices em disco são exercitados
+        PartitionedAnalysis.Result partitioned = new PartitionedAnalysis(1 << 20, dir.resolve("spill"),
+            new FlowChecker(), smurfing(), layering(), community(), cycles()).run(csv, new CsvLoader(2));
+
+        assertEquals(store.size, partitioned.parse.rows, "linhas");
+        assertEquals(store.accountCount(), partitioned.accounts.size(), "contas");
+        for (int id = 0; id < store.accountCount(); id++) {
+            assertEquals(store.accountId(id), partitioned.accounts.get(id), "conta " + id);
+        }
+        assertEquals(describeAlerts(alerts), describeAlerts(partitioned.outcome.alerts), csv.getFileName() + ": alertas");
+        assertEquals(describeCommunities(communities), describeCommunities(partitioned.communities),
+            csv.getFileName() + ": comunidades");
+        return partitioned;
+    }
+
+    /** Sem alertas de cada detector a comparação acima não provaria nada. */
+    @Test
+    void fullDatasetTriggersEveryDetector() throws IOException {
+        TransactionGraph graph = new TransactionGraph(new CsvLoader(1).load(Paths.get("full_dataset.csv")).store);
+        assertFalse(new FlowChecker().check(graph).isEmpty(), "fluxo");
+        assertFalse(smurfing().detect(graph).isEmpty(), "smurfing");
+        assertFalse(layering().detect(graph).isEmpty(), "layering");
+        assertFalse(community().detect(graph).isEmpty(), "comunidades");
+        assertFalse(cycles().detect(graph).isEmpty(), "ciclos");
+    }
+
+    private static List<String> describeAlerts(List<Suspicion> alerts) {
+        List<String> res = new ArrayList<>();
+        for (Suspicion s : alerts) res.add(s.account + "|" + s.reason + "|" + s.score + "|" + Arrays.toString(s.evidence));
+        Collections.sort(res);
+        return res;
+    }
+
+    private static List<String> describeCommunities(List<CommunityDetector.Community> communities) {
+        List<String> res = new ArrayList<>();
+        for (CommunityDetector.Community c : communities) {
+            res.add(c.id + "|" + c.k + "|" + c.edges + "|" + Arrays.toString(c.accounts) + "|" + Arrays.toString(c.evidence));
+        }
+        Collections.sort(res);
+        return res;
+    }
+
+    private static SmurfingDetector smurfing() {
+        return new SmurfingDetector(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX);
+    }
+
+    private static LayeringDetector layering() {
+        return new LayeringDetector(LAYERING_MAX_DEPTH, LAYERING_DELTA, LAYERING_TIME_WINDOW_MINUTES);
+    }
+
+    private static CommunityDetector community() {
+        return new CommunityDetector(DENSE_MIN_DEGREE);
+    }
+
+    private static CycleDetector cycles() {
+        return new CycleDetector(CYCLE_MAX_LENGTH, CYCLE_TIME_WINDOW_MINUTES, TOLERANCE);
+    }
+}
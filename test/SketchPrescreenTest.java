@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * A triagem por sketches não pode descartar conta que o detector exato
+ * alertaria: FlowChecker, SmurfingDetector e CommunityDetector rodando nas
+ * transações triadas têm que dar os mesmos alertas (contas, motivos, scores e
+ * linhas de evidência) que no dataset completo. Cada regra é conferida sozinha
+ * e junto com as outras, com os sketches do pipeline e com sketches pequenos
+ * de propósito, em que as colisões são a regra.
+ */
+class SketchPrescreenTest {
+    private static final String[] SAMPLES = {
+        "fraud_dataset.csv", "full_dataset.csv", "not_fraud_dataset.csv", "small_not_fraud_dataset.csv"
+    };
+
+    private static final double SMURF_UNIT_LIMIT = 20000.0;
+    private static final int SMURF_MIN_TX = 5;
+    private static final long SMURF_WINDOW_MINUTES = 6000;
+    private static final int DENSE_MIN_DEGREE = 2;
+
+    /** Os valores do pipeline. */
+    private static final SketchPrescreen DEFAULT = new SketchPrescreen(1e-5, 0.01, 4096);
+    /** Largura 6, profundidade 1 e um só heavy hitter: quase toda conta colide. */
+    private static final SketchPrescreen TINY = new SketchPrescreen(0.5, 0.9, 1);
+    private static final SketchPrescreen SMALL = new SketchPrescreen(0.01, 0.1, 8);
+
+    static String[] samples() {
+        return SAMPLES;
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void screenedAlertsMatchExactAlerts(String name) throws IOException {
+        TransactionStore store = new CsvLoader(2).load(Paths.get(name)).store;
+        TransactionGraph graph = new TransactionGraph(store);
+        for (SketchPrescreen prescreen : Arrays.asList(DEFAULT, SMALL, TINY)) {
+            assertSameAlerts(name + " fluxo", prescreen, store, graph, true, false, false);
+            assertSameAlerts(name + " smurfing", prescreen, store, graph, false, true, false);
+            assertSameAlerts(name + " comunidades", prescreen, store, graph, false, false, true);
+            assertSameAlerts(name + " todas", prescreen, store, graph, true, true, true);
+        }
+    }
+
+    /** Sem colisões nos sketches pequenos o teste acima não provaria nada sobre elas. */
+    @Test
+    void tinySketchesCollide() throws IOException {
+        TransactionStore store = new CsvLoader(2).load(Paths.get("full_dataset.csv")).store;
+        SketchPrescreen.Criteria criteria = criteria(true, true, true);
+        SketchPrescreen.Result exact = DEFAULT.screen(store, criteria);
+        SketchPrescreen.Result tiny = TINY.screen(store, criteria);
+        assertTrue(tiny.flowCandidates > exact.flowCandidates, "fluxo: " + tiny.flowCandidates + " > " + exact.flowCandidates);
+        assertTrue(tiny.smurfCandidates > exact.smurfCandidates, "smurfing: " + tiny.smurfCandidates + " > " + exact.smurfCandidates);
+        assertTrue(tiny.communityCandidates >= exact.communityCandidates, "comunidades");
+        assertTrue(exact.candidates < exact.accounts, "a triagem padrão descarta contas");
+    }
+
+    private static void assertSameAlerts(String label, SketchPrescreen prescreen, TransactionStore store,
+                                         TransactionGraph graph, boolean flow, boolean smurf, boolean community) {
+        List<Suspicion> expected = new ArrayList<>();
+        if (flow) expected.addAll(new FlowChecker().check(graph));
+        if (smurf) expected.addAll(smurfing().detect(graph));
+        if (community) expected.addAll(community().detect(graph));
+
+        SketchPrescreen.Result screen = prescreen.screen(store, criteria(flow, smurf, community));
+        TransactionGraph screened = new TransactionGraph(screen.store);
+        List<Suspicion> actual = new ArrayList<>();
+        if (flow) actual.addAll(screen.toOriginal(new FlowChecker().check(screened)));
+        if (smurf) actual.addAll(screen.toOriginal(smurfing().detect(screened)));
+        if (community) {
+            CommunityDetector detector = community();
+            actual.addAll(detector.toSuspicions(screen.toOriginalCommunities(detector.findCommunities(screened))));
+        }
+        assertEquals(describe(expected), describe(actual), label + " (epsilon " + screen.epsilon + ")");
+    }
+
+    private static SketchPrescreen.Criteria criteria(boolean flow, boolean smurf, boolean community) {
+        return new SketchPrescreen.Criteria(flow ? FlowChecker.LIMITE_SUSPEITO : 0,
+            SMURF_UNIT_LIMIT, smurf ? SMURF_MIN_TX : 0, community ? DENSE_MIN_DEGREE : 0);
+    }
+
+    private static List<String> describe(List<Suspicion> alerts) {
+        List<String> res = new ArrayList<>();
+        for (Suspicion s : alerts) res.add(s.account + "|" + s.reason + "|" + s.score + "|" + Arrays.toString(s.evidence));
+        Collections.sort(res);
+        return res;
+    }
+
+    private static SmurfingDetector smurfing() {
+        return new SmurfingDetector(SMURF_WINDOW_MINUTES, SMURF_UNIT_LIMIT, SMURF_MIN_TX);
+    }
+
+    private static CommunityDetector community() {
+        return new CommunityDetector(DENSE_MIN_DEGREE);
+    }
+}
@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Formato do snapshot binário: ida e volta sem perda e recusa de snapshots
+ * de outro CSV, de outra versão ou corrompidos.
+ */
+class TransactionSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsEveryColumn() throws IOException {
+        for (String name : new String[] {"full_dataset.csv", "small_not_fraud_dataset.csv"}) {
+            Path csv = copy(name);
+            TransactionStore loaded = new CsvLoader(2).load(csv).store;
+            TransactionSnapshot.write(loaded, csv);
+            TransactionStore read = TransactionSnapshot.read(csv);
+            assertNotNull(read, name);
+            assertSameStore(loaded, read);
+        }
+    }
+
+    @Test
+    void roundTripOfEmptyStore() throws IOException {
+        Path csv = dir.resolve("empty.csv");
+        Files.write(csv, Arrays.asList("Timestamp,From Bank,Account,To Bank,Account,Amount Received,"
+            + "Receiving Currency,Amount Paid,Payment Currency,Payment Format,Is Laundering"));
+        TransactionStore loaded = new CsvLoader(1).load(csv).store;
+        assertEquals(0, loaded.size);
+        TransactionSnapshot.write(loaded, csv);
+        assertSameStore(loaded, TransactionSnapshot.read(csv));
+    }
+
+    @Test
+    void missingSnapshotIsIgnored() throws IOException {
+        assertNull(TransactionSnapshot.read(copy("small_not_fraud_dataset.csv")));
+    }
+
+    @Test
+    void snapshotOfChangedCsvIsIgnored() throws IOException {
+        Path csv = copy("small_not_fraud_dataset.csv");
+        TransactionSnapshot.write(new CsvLoader(1).load(csv).store, csv);
+
+        FileTime modified = Files.getLastModifiedTime(csv);
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(modified.toMillis() + 60_000));
+        assertNull(TransactionSnapshot.read(csv), "data de modificação diferente");
+
+        Files.setLastModifiedTime(csv, modified);
+        assertNotNull(TransactionSnapshot.read(csv));
+        Files.write(csv, "\n".getBytes(), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csv, modified);
+        assertNull(TransactionSnapshot.read(csv), "tamanho diferente");
+    }
+
+    @Test
+    void snapshotWithOtherMagicOrVersionIsIgnored() throws IOException {
+        Path csv = copy("small_not_fraud_dataset.csv");
+        TransactionSnapshot.write(new CsvLoader(1).load(csv).store, csv);
+        Path snapshot = TransactionSnapshot.pathFor(csv);
+        byte[] original = Files.readAllBytes(snapshot);
+
+        byte[] version = original.clone();
+        ByteBuffer.wrap(version).order(ByteOrder.LITTLE_ENDIAN).putInt(8, 99);
+        Files.write(snapshot, version);
+        assertNull(TransactionSnapshot.read(csv), "outra versão");
+
+        byte[] magic = original.clone();
+        magic[0] ^= 0x01;
+        Files.write(snapshot, magic);
+        assertNull(TransactionSnapshot.read(csv), "assinatura errada");
+
+        Files.write(snapshot, Arrays.copyOf(original, 16));
+        assertNull(TransactionSnapshot.read(csv), "cabeçalho incompleto");
+    }
+
+    @Test
+    void writeReplacesPreviousSnapshot() throws IOException {
+        Path csv = copy("small_not_fraud_dataset.csv");
+        TransactionSnapshot.write(new CsvLoader(1).load(csv).store, csv);
+        TransactionStore loaded = new CsvLoader(1).load(csv).store;
+        TransactionSnapshot.write(loaded, csv);
+        assertSameStore(loaded, TransactionSnapshot.read(csv));
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(p -> p.getFileName().toString().endsWith(".tmp")), "arquivo temporário");
+        }
+    }
+
+    private Path copy(String name) throws IOException {
+        Path target = dir.resolve(name);
+        Files.copy(Paths.get(name), target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    private static void assertSameStore(TransactionStore expected, TransactionStore actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size, actual.size);
+        assertSameDictionary(expected.accounts, actual.accounts);
+        assertSameDictionary(expected.banks, actual.banks);
+        assertSameDictionary(expected.currencies, actual.currencies);
+        assertSameDictionary(expected.paymentFormats, actual.paymentFormats);
+        int n = expected.size;
+        assertArrayEquals(Arrays.copyOf(expected.origin, n), actual.origin, "origin");
+        assertArrayEquals(Arrays.copyOf(expected.destination, n), actual.destination, "destination");
+        assertArrayEquals(Arrays.copyOf(expected.amount, n), actual.amount, "amount");
+        assertArrayEquals(Arrays.copyOf(expected.timestamp, n), actual.timestamp, "timestamp");
+        assertArrayEquals(Arrays.copyOf(expected.fromBank, n), actual.fromBank, "fromBank");
+        assertArrayEquals(Arrays.copyOf(expected.toBank, n), actual.toBank, "toBank");
+        assertArrayEquals(Arrays.copyOf(expected.currency, n), actual.currency, "currency");
+        assertArrayEquals(Arrays.copyOf(expected.paymentFormat, n), actual.paymentFormat, "paymentFormat");
+        assertArrayEquals(Arrays.copyOf(expected.laundering, n), actual.laundering, "laundering");
+    }
+
+    private static void assertSameDictionary(StringDictionary expected, StringDictionary actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int code = 0; code < expected.size(); code++) assertEquals(expected.get(code), actual.get(code));
+    }
+}